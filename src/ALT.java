@@ -0,0 +1,565 @@
+/**
+ * ALT (A*, landmarks, triangle inequality) index for repeated point to point
+ * queries on graphs with non-negative edge weights. For a few landmarks L the
+ * exact distances d(L, v) and d(v, L) are stored for every vertex; by the
+ * triangle inequality d(L, t) - d(L, v) and d(v, L) - d(t, L) are lower
+ * bounds on d(v, t), which guide an A* search towards the target.
+ *
+ * Tables are vertex major, the k entries of a vertex are adjacent, so the
+ * bound of one vertex reads one or two cache lines.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.Edge;
+import graph.EdgeListReader;
+import graph.Graph;
+import graph.Vertex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import pq.IntIndexedHeap;
+
+public class ALT {
+	public static final int MAGIC = 0x414C5431; // "ALT1" in big endian
+	public static final int VERSION = 1;
+
+	public final int numNodes; // number of vertices of the indexed graph
+	private final int[] landmarks; // landmark vertex names
+	private final int[] fromLandmark; // d(L_i, v) at [v * k + i]
+	private final int[] toLandmark; // d(v, L_i) at [v * k + i]
+
+	/**
+	 * Constructor for ALT, arrays are used as is without copy
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @param landmarks
+	 *            : int[] - landmark vertex names
+	 * @param fromLandmark
+	 *            : int[] - vertex major distances from each landmark
+	 * @param toLandmark
+	 *            : int[] - vertex major distances to each landmark
+	 */
+	private ALT(int n, int[] landmarks, int[] fromLandmark, int[] toLandmark) {
+		this.numNodes = n;
+		this.landmarks = landmarks;
+		this.fromLandmark = fromLandmark;
+		this.toLandmark = toLandmark;
+	}
+
+	/**
+	 * select landmarks and build their distance tables
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative weight edge
+	 * @param k
+	 *            : int - number of landmarks
+	 * @param strategy
+	 *            : int - DEF.LANDMARK_FARTHEST or DEF.LANDMARK_AVOID
+	 * @param seed
+	 *            : long - seed of the random start vertex
+	 * @param threads
+	 *            : int - number of threads computing the tables
+	 * @return : ALT - index over the graph
+	 */
+	public static ALT build(Graph g, int k, int strategy, long seed,
+			int threads) {
+		CSRGraph csr = CSRGraph.fromGraph(g);
+		return build(csr, selectLandmarks(csr, k, strategy, seed), threads);
+	}
+
+	/**
+	 * build the distance tables of given landmarks. Each landmark needs one
+	 * Dijkstra on the graph and one on its reverse; these searches run in
+	 * parallel, each with its own SearchState.
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with only non-negative weight edge
+	 * @param landmarks
+	 *            : int[] - landmark vertex names
+	 * @param threads
+	 *            : int - number of threads
+	 * @return : ALT - index over the graph
+	 */
+	public static ALT build(final CSRGraph g, int[] landmarks, int threads) {
+		final int n = g.numNodes;
+		final int k = landmarks.length;
+		final CSRGraph reverse = g.reverse();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1,
+				threads));
+		try {
+			// one task per landmark and direction, each returns a column
+			List<Future<int[]>> columns = new ArrayList<Future<int[]>>();
+			for (int i = 0; i < 2 * k; i++) {
+				final int landmark = landmarks[i % k];
+				final CSRGraph direction = i < k ? g : reverse;
+				columns.add(pool.submit(new Callable<int[]>() {
+					@Override
+					public int[] call() {
+						SearchState st = new SearchState(n);
+						ShortestPath.sp_dijkstra(direction, landmark, false, st);
+						int[] column = new int[n + 1];
+						for (int v = 1; v <= n; v++) {
+							column[v] = st.getDistance(v);
+						}
+						return column;
+					}
+				}));
+			}
+
+			// transpose the columns into vertex major tables
+			int[] fromLandmark = new int[(n + 1) * k];
+			int[] toLandmark = new int[(n + 1) * k];
+			for (int i = 0; i < 2 * k; i++) {
+				int[] column = columns.get(i).get();
+				int[] table = i < k ? fromLandmark : toLandmark;
+				int c = i % k;
+				for (int v = 1; v <= n; v++) {
+					table[v * k + c] = column[v];
+				}
+			}
+			return new ALT(n, landmarks.clone(), fromLandmark, toLandmark);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Landmark preprocessing interrupted",
+					e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Landmark preprocessing failed",
+					e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * select landmarks. FARTHEST repeatedly takes the vertex farthest from
+	 * the landmarks chosen so far, preferring vertices none of them reaches.
+	 * AVOID grows a shortest path tree from a random root, weighs each vertex
+	 * by how badly the current landmarks bound its distance from the root,
+	 * and takes a leaf below the heaviest subtree that has no landmark.
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with only non-negative weight edge
+	 * @param k
+	 *            : int - number of landmarks, at most g.numNodes
+	 * @param strategy
+	 *            : int - DEF.LANDMARK_FARTHEST or DEF.LANDMARK_AVOID
+	 * @param seed
+	 *            : long - seed of the random start vertex
+	 * @return : int[] - landmark vertex names
+	 */
+	public static int[] selectLandmarks(CSRGraph g, int k, int strategy,
+			long seed) {
+		int n = g.numNodes;
+		k = Math.min(k, n);
+		Random random = new Random(seed);
+		SearchState st = new SearchState(n);
+		int[] ret = new int[k];
+		boolean[] chosen = new boolean[n + 1];
+		// forward distances of each chosen landmark
+		List<int[]> columns = new ArrayList<int[]>();
+		// distance to the closest landmark, used by FARTHEST
+		int[] nearest = new int[n + 1];
+		Arrays.fill(nearest, SearchState.INFINITY);
+
+		for (int i = 0; i < k; i++) {
+			int next;
+			if (strategy == DEF.LANDMARK_AVOID) {
+				next = avoid(g, 1 + random.nextInt(n), columns, chosen, st);
+			} else if (strategy == DEF.LANDMARK_FARTHEST) {
+				if (i == 0) {
+					ShortestPath.sp_dijkstra(g, 1 + random.nextInt(n), false,
+							st);
+					next = farthest(n, st, null, chosen);
+				} else {
+					next = farthest(n, null, nearest, chosen);
+				}
+			} else {
+				throw new IllegalArgumentException("Unknown landmark strategy: "
+						+ strategy);
+			}
+			if (next == 0) {
+				// nothing left to improve, fall back to any unused vertex
+				do {
+					next = 1 + random.nextInt(n);
+				} while (chosen[next]);
+			}
+
+			ret[i] = next;
+			chosen[next] = true;
+			ShortestPath.sp_dijkstra(g, next, false, st);
+			int[] column = new int[n + 1];
+			for (int v = 1; v <= n; v++) {
+				column[v] = st.getDistance(v);
+				nearest[v] = Math.min(nearest[v], column[v]);
+			}
+			columns.add(column);
+		}
+		return ret;
+	}
+
+	/**
+	 * helper method to find the unused vertex farthest from a search or from
+	 * the closest landmark; an unreached vertex counts as farthest
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @param st
+	 *            : SearchState - finished search, or null to use nearest
+	 * @param nearest
+	 *            : int[] - distance to the closest landmark
+	 * @param chosen
+	 *            : boolean[] - vertices that are already landmarks
+	 * @return : int - farthest vertex, 0 if every vertex is a landmark
+	 */
+	private static int farthest(int n, SearchState st, int[] nearest,
+			boolean[] chosen) {
+		int ret = 0;
+		int max = -1;
+		for (int v = 1; v <= n; v++) {
+			int d = st != null ? st.getDistance(v) : nearest[v];
+			if (!chosen[v] && d > max) {
+				max = d;
+				ret = v;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * helper method for the AVOID strategy
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @param root
+	 *            : int - root of the shortest path tree
+	 * @param columns
+	 *            : List<int[]> - forward distances of the chosen landmarks
+	 * @param chosen
+	 *            : boolean[] - vertices that are already landmarks
+	 * @param st
+	 *            : SearchState - scratch state
+	 * @return : int - new landmark, 0 if every subtree has one
+	 */
+	private static int avoid(CSRGraph g, int root, List<int[]> columns,
+			boolean[] chosen, SearchState st) {
+		int n = g.numNodes;
+		ShortestPath.sp_dijkstra(g, root, false, st);
+
+		// children of each vertex in the shortest path tree, in BFS order
+		int[] childStart = new int[n + 2];
+		int[] order = new int[n];
+		int size = 0;
+		for (int v = 1; v <= n; v++) {
+			if (st.getParent(v) != 0) {
+				childStart[st.getParent(v) + 1]++;
+			}
+		}
+		for (int v = 1; v <= n + 1; v++) {
+			childStart[v] += childStart[v - 1];
+		}
+		int[] child = new int[childStart[n + 1]];
+		int[] next = Arrays.copyOf(childStart, n + 1);
+		for (int v = 1; v <= n; v++) {
+			if (st.getParent(v) != 0) {
+				child[next[st.getParent(v)]++] = v;
+			}
+		}
+		order[size++] = root;
+		for (int i = 0; i < size; i++) {
+			int u = order[i];
+			for (int c = childStart[u]; c < childStart[u + 1]; c++) {
+				order[size++] = child[c];
+			}
+		}
+
+		// weight of a vertex is the gap between its distance from the root
+		// and the best landmark lower bound of that distance. Sum the weights
+		// bottom up, a subtree containing a landmark weighs nothing.
+		long[] weight = new long[n + 1];
+		boolean[] covered = new boolean[n + 1];
+		for (int i = size - 1; i >= 0; i--) {
+			int v = order[i];
+			long bound = 0;
+			for (int[] column : columns) {
+				if (column[v] != SearchState.INFINITY
+						&& column[root] != SearchState.INFINITY) {
+					bound = Math.max(bound, (long) column[v] - column[root]);
+				}
+			}
+			weight[v] += st.getDistance(v) - bound;
+			covered[v] |= chosen[v];
+			int p = st.getParent(v);
+			if (covered[v]) {
+				weight[v] = 0;
+				if (p != 0) {
+					covered[p] = true;
+				}
+			} else if (p != 0) {
+				weight[p] += weight[v];
+			}
+		}
+
+		// walk down from the heaviest vertex to a leaf along heaviest children
+		int ret = 0;
+		for (int i = 0; i < size; i++) {
+			int v = order[i];
+			if (!covered[v] && (ret == 0 || weight[v] > weight[ret])) {
+				ret = v;
+			}
+		}
+		while (ret != 0) {
+			int heaviest = 0;
+			for (int c = childStart[ret]; c < childStart[ret + 1]; c++) {
+				int v = child[c];
+				if (!covered[v] && (heaviest == 0 || weight[v] > weight[heaviest])) {
+					heaviest = v;
+				}
+			}
+			if (heaviest == 0) {
+				break;
+			}
+			ret = heaviest;
+		}
+		return ret;
+	}
+
+	/**
+	 * lower bound of the distance from v to t given by the landmarks
+	 *
+	 * @param v
+	 *            : int - from vertex
+	 * @param t
+	 *            : int - to vertex
+	 * @return : int - lower bound, 0 if no landmark gives one
+	 */
+	public int lowerBound(int v, int t) {
+		int k = landmarks.length;
+		int vi = v * k;
+		int ti = t * k;
+		long ret = 0;
+		for (int i = 0; i < k; i++) {
+			int fromV = fromLandmark[vi + i];
+			int fromT = fromLandmark[ti + i];
+			if (fromV != SearchState.INFINITY && fromT != SearchState.INFINITY) {
+				ret = Math.max(ret, (long) fromT - fromV);
+			}
+			int toV = toLandmark[vi + i];
+			int toT = toLandmark[ti + i];
+			if (toV != SearchState.INFINITY && toT != SearchState.INFINITY) {
+				ret = Math.max(ret, (long) toV - toT);
+			}
+		}
+		return (int) ret;
+	}
+
+	/**
+	 * A* search from s to t with the landmark lower bounds as potential. The
+	 * bounds are consistent, so a vertex is settled once as in Dijkstra.
+	 *
+	 * @param g
+	 *            : Graph - the indexed graph
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param t
+	 *            : Vertex - target vertex
+	 * @param st
+	 *            : SearchState - search data of this query
+	 * @return : PathResult - distance and path from s to t
+	 */
+	public PathResult query(Graph g, Vertex s, Vertex t, SearchState st) {
+		if (g.numNodes != numNodes) {
+			throw new IllegalArgumentException("Index built for " + numNodes
+					+ " vertices, graph has " + g.numNodes);
+		}
+		st.reset();
+		IntIndexedHeap pq = new IntIndexedHeap(numNodes);
+		st.setDistance(s.name, 0);
+		pq.insert(s.name, lowerBound(s.name, t.name));
+		int settled = 0;
+
+		while (!pq.isEmpty()) {
+			Vertex u = g.verts.get(pq.deleteMin());
+			st.setSeen(u.name, true);
+			settled++;
+			if (u == t) {
+				break; // distance of the target is final
+			}
+			int du = st.getDistance(u.name);
+			for (Edge e : u.Adj) {
+				Vertex v = e.otherEnd(u);
+				int temp = du + e.Weight;
+				if (!st.isSeen(v.name) && st.getDistance(v.name) > temp) {
+					st.setDistance(v.name, temp);
+					st.setParent(v.name, u.name);
+					long key = (long) temp + lowerBound(v.name, t.name);
+					if (pq.contains(v.name)) {
+						pq.decreaseKey(v.name, key);
+					} else {
+						pq.insert(v.name, key);
+					}
+				}
+			}
+		}
+
+		if (!st.isSeen(t.name)) {
+			return new PathResult(SearchState.INFINITY, null, settled, 0);
+		}
+		return new PathResult(st.getDistance(t.name), PointToPoint.buildPath(
+				g, s, t, t.name, st, null, true), settled, 0);
+	}
+
+	/** landmark vertex names */
+	public int[] getLandmarks() {
+		return landmarks.clone();
+	}
+
+	/**
+	 * Approximate footprint of the distance tables in bytes
+	 *
+	 * @return : long - bytes used by the index
+	 */
+	public long memoryBytes() {
+		return 4L * (landmarks.length + fromLandmark.length + toLandmark.length);
+	}
+
+	/**
+	 * Write the index to a file, replacing any existing content. The file
+	 * holds magic, version, number of vertices, number of landmarks, the
+	 * landmarks and both tables as big endian 32 bit integers.
+	 *
+	 * @param file
+	 *            : File - index file
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(numNodes);
+			out.writeInt(landmarks.length);
+			writeInts(out, landmarks);
+			writeInts(out, fromLandmark);
+			writeInts(out, toLandmark);
+		}
+	}
+
+	/**
+	 * Read an index written by save()
+	 *
+	 * @param file
+	 *            : File - index file
+	 * @return : ALT - the index
+	 * @throws IOException
+	 *             if the file is not an index of this version
+	 */
+	public static ALT load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a landmark index: " + file);
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported landmark index version "
+						+ version);
+			}
+			int n = in.readInt();
+			int k = in.readInt();
+			int[] landmarks = readInts(in, k);
+			int[] fromLandmark = readInts(in, (n + 1) * k);
+			int[] toLandmark = readInts(in, (n + 1) * k);
+			return new ALT(n, landmarks, fromLandmark, toLandmark);
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] a)
+			throws IOException {
+		for (int x : a) {
+			out.writeInt(x);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in, int length)
+			throws IOException {
+		int[] ret = new int[length];
+		for (int i = 0; i < length; i++) {
+			ret[i] = in.readInt();
+		}
+		return ret;
+	}
+
+	/**
+	 * Driver function comparing A* with plain early exit Dijkstra on random
+	 * queries
+	 *
+	 * @param args
+	 *            argument - input graph file, optional number of landmarks
+	 *            and optional strategy (farthest or avoid)
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java ALT <graph file> [landmarks] [farthest|avoid]");
+			return;
+		}
+		Graph g = EdgeListReader.readGraph(new File(args[0]), true);
+		int k = args.length > 1 ? Integer.parseInt(args[1])
+				: DEF.ALT_LANDMARKS;
+		int strategy = args.length > 2 && args[2].equals("avoid") ? DEF.LANDMARK_AVOID
+				: DEF.LANDMARK_FARTHEST;
+
+		long start = System.nanoTime();
+		ALT alt = build(g, k, strategy, 1, Runtime.getRuntime()
+				.availableProcessors());
+		System.out.println("Preprocessing: " + (System.nanoTime() - start)
+				/ 1000000 + " ms, " + alt.memoryBytes() / g.numNodes
+				+ " bytes per vertex");
+
+		Random random = new Random(2);
+		SearchState st = new SearchState(g.numNodes);
+		long dijkstraTime = 0;
+		long altTime = 0;
+		long dijkstraSettled = 0;
+		long altSettled = 0;
+		int queries = 100;
+		for (int q = 0; q < queries; q++) {
+			Vertex s = g.verts.get(1 + random.nextInt(g.numNodes));
+			Vertex t = g.verts.get(1 + random.nextInt(g.numNodes));
+			start = System.nanoTime();
+			PathResult plain = PointToPoint.dijkstra(g, s, t, st);
+			dijkstraTime += System.nanoTime() - start;
+			start = System.nanoTime();
+			PathResult guided = alt.query(g, s, t, st);
+			altTime += System.nanoTime() - start;
+			if (plain.distance != guided.distance) {
+				System.out.println("Mismatch for " + s + " -> " + t);
+			}
+			dijkstraSettled += plain.explored();
+			altSettled += guided.explored();
+		}
+		System.out.println("Dijkstra: " + dijkstraTime / queries / 1000
+				+ " us, settled " + dijkstraSettled / queries);
+		System.out.println("ALT: " + altTime / queries / 1000
+				+ " us, settled " + altSettled / queries);
+	}
+}
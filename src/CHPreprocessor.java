@@ -0,0 +1,503 @@
+/**
+ * Builds a ContractionHierarchy. Vertices are contracted in rounds; every
+ * round takes the vertices whose priority (twice the edge difference plus the
+ * number of contracted neighbours) is smaller than that of all their active
+ * neighbours. Such a set is independent, so the shortcuts of its vertices are
+ * computed in parallel. Witness searches avoid the whole round, which keeps
+ * the shortcuts of one vertex valid while its neighbours in the round are
+ * removed.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.Edge;
+import graph.Graph;
+import graph.Vertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import pq.IntIndexedHeap;
+
+class CHPreprocessor {
+	private static final byte ACTIVE = 0; // not contracted yet
+	private static final byte BATCH = 1; // contracted in the running round
+	private static final byte CONTRACTED = 2; // removed from the graph
+
+	private final int numNodes;
+	private final int threads;
+
+	// arcs of the hierarchy, original edges first, then shortcuts
+	private int numArcs;
+	private final int numOriginal;
+	private final Edge[] original; // edge of each original arc
+	private int[] tail;
+	private int[] head;
+	private int[] weight;
+	private int[] first; // first half of a shortcut, -1 for original arcs
+	private int[] second; // second half of a shortcut
+
+	// arcs leaving and entering each vertex, arcs to contracted vertices are
+	// dropped after each round
+	private final int[][] out;
+	private final int[] outSize;
+	private final int[][] in;
+	private final int[] inSize;
+
+	private final byte[] state; // ACTIVE, BATCH or CONTRACTED
+	private final int[] priority; // contraction priority, smaller first
+	private final int[] deleted; // number of contracted neighbours
+	private final int[] rank; // contraction order
+
+	// scratch data of each worker thread
+	private final SearchState[] scratch;
+	private final IntIndexedHeap[] heaps;
+	private final int[][] targetMark; // vertices equal to the stamp are targets
+	private final int[] targetStamp;
+
+	/**
+	 * Constructor for CHPreprocessor, copies the edges of the graph keeping
+	 * only the lightest of parallel edges and dropping self loops
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative weight edge
+	 * @param threads
+	 *            : int - number of threads
+	 */
+	CHPreprocessor(Graph g, int threads) {
+		numNodes = g.numNodes;
+		this.threads = Math.max(1, threads);
+		int m = 0;
+		for (Vertex u : g) {
+			m += u.Adj.size();
+		}
+		tail = new int[m];
+		head = new int[m];
+		weight = new int[m];
+		first = new int[m];
+		second = new int[m];
+		original = new Edge[m];
+		out = new int[numNodes + 1][];
+		in = new int[numNodes + 1][];
+		outSize = new int[numNodes + 1];
+		inSize = new int[numNodes + 1];
+		for (int v = 1; v <= numNodes; v++) {
+			out[v] = new int[4];
+			in[v] = new int[4];
+		}
+
+		// arc from the current vertex to each head, -1 if none
+		int[] arcTo = new int[numNodes + 1];
+		Arrays.fill(arcTo, -1);
+		for (Vertex u : g) {
+			for (Edge e : u.Adj) {
+				int v = e.otherEnd(u).name;
+				if (v == u.name) {
+					continue;
+				}
+				int a = arcTo[v];
+				if (a >= 0 && tail[a] == u.name) {
+					if (e.Weight < weight[a]) {
+						weight[a] = e.Weight;
+						original[a] = e;
+					}
+				} else {
+					a = newArc(u.name, v, e.Weight, -1, -1);
+					original[a] = e;
+					arcTo[v] = a;
+				}
+			}
+		}
+		numOriginal = numArcs;
+
+		state = new byte[numNodes + 1];
+		priority = new int[numNodes + 1];
+		deleted = new int[numNodes + 1];
+		rank = new int[numNodes + 1];
+		scratch = new SearchState[this.threads];
+		heaps = new IntIndexedHeap[this.threads];
+		targetMark = new int[this.threads][numNodes + 1];
+		targetStamp = new int[this.threads];
+		for (int i = 0; i < this.threads; i++) {
+			scratch[i] = new SearchState(numNodes);
+			heaps[i] = new IntIndexedHeap(numNodes);
+		}
+	}
+
+	/**
+	 * contract every vertex and build the search graphs
+	 *
+	 * @return : ContractionHierarchy - the hierarchy
+	 */
+	ContractionHierarchy run() {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			int[] all = new int[numNodes];
+			for (int v = 1; v <= numNodes; v++) {
+				all[v - 1] = v;
+			}
+			updatePriorities(pool, all, all.length);
+
+			int nextRank = 0;
+			int[] marked = new int[numNodes + 1]; // round a neighbour was seen
+			int[] neighbours = new int[numNodes];
+			int round = 0;
+			while (nextRank < numNodes) {
+				round++;
+				int[] batch = independentSet();
+				for (int v : batch) {
+					state[v] = BATCH;
+				}
+				int[][] shortcuts = findShortcuts(pool, batch);
+
+				int count = 0;
+				for (int i = 0; i < batch.length; i++) {
+					int v = batch[i];
+					for (int j = 0; j < shortcuts[i].length; j += 2) {
+						int a = shortcuts[i][j];
+						int b = shortcuts[i][j + 1];
+						addShortcut(tail[a], head[b], weight[a] + weight[b], a,
+								b);
+					}
+					state[v] = CONTRACTED;
+					rank[v] = nextRank++;
+					for (int k = 0; k < outSize[v] + inSize[v]; k++) {
+						int u = k < outSize[v] ? head[out[v][k]]
+								: tail[in[v][k - outSize[v]]];
+						if (state[u] == ACTIVE) {
+							deleted[u]++;
+							if (marked[u] != round) {
+								marked[u] = round;
+								neighbours[count++] = u;
+							}
+						}
+					}
+				}
+				for (int i = 0; i < count; i++) {
+					dropInactiveArcs(neighbours[i]);
+				}
+				updatePriorities(pool, neighbours, count);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Contraction interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Contraction failed", e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return new ContractionHierarchy(numNodes, rank, numArcs, numOriginal,
+				original, tail, head, weight, first, second);
+	}
+
+	/**
+	 * active vertices whose priority is smaller than that of every active
+	 * neighbour, ties broken by name
+	 *
+	 * @return : int[] - the vertices contracted in the next round
+	 */
+	private int[] independentSet() {
+		int[] ret = new int[numNodes];
+		int size = 0;
+		for (int v = 1; v <= numNodes; v++) {
+			if (state[v] != ACTIVE) {
+				continue;
+			}
+			boolean smallest = true;
+			for (int k = 0; smallest && k < outSize[v] + inSize[v]; k++) {
+				int u = k < outSize[v] ? head[out[v][k]]
+						: tail[in[v][k - outSize[v]]];
+				if (state[u] == ACTIVE
+						&& (priority[u] < priority[v] || (priority[u] == priority[v] && u < v))) {
+					smallest = false;
+				}
+			}
+			if (smallest) {
+				ret[size++] = v;
+			}
+		}
+		return Arrays.copyOf(ret, size);
+	}
+
+	/**
+	 * compute the shortcuts of every vertex of a round in parallel
+	 *
+	 * @param pool
+	 *            : ExecutorService - worker threads
+	 * @param batch
+	 *            : int[] - vertices of the round, marked BATCH
+	 * @return : int[][] - pairs (in arc, out arc) of each shortcut per vertex
+	 */
+	private int[][] findShortcuts(ExecutorService pool, final int[] batch)
+			throws InterruptedException, ExecutionException {
+		final int[][] ret = new int[batch.length][];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int w = 0; w < threads; w++) {
+			final int worker = w;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = worker; i < batch.length; i += threads) {
+						ret[i] = shortcuts(batch[i], worker);
+					}
+					return null;
+				}
+			});
+		}
+		for (Future<Void> f : pool.invokeAll(tasks)) {
+			f.get();
+		}
+		return ret;
+	}
+
+	/**
+	 * recompute the priority of some active vertices in parallel by
+	 * simulating their contraction
+	 *
+	 * @param pool
+	 *            : ExecutorService - worker threads
+	 * @param vertices
+	 *            : int[] - vertices to update
+	 * @param count
+	 *            : int - number of vertices used from the array
+	 */
+	private void updatePriorities(ExecutorService pool, final int[] vertices,
+			final int count) throws InterruptedException, ExecutionException {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int w = 0; w < threads; w++) {
+			final int worker = w;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = worker; i < count; i += threads) {
+						int v = vertices[i];
+						int degree = 0;
+						for (int k = 0; k < outSize[v]; k++) {
+							degree += state[head[out[v][k]]] == ACTIVE ? 1 : 0;
+						}
+						for (int k = 0; k < inSize[v]; k++) {
+							degree += state[tail[in[v][k]]] == ACTIVE ? 1 : 0;
+						}
+						priority[v] = 2 * (shortcuts(v, worker).length / 2 - degree)
+								+ deleted[v];
+					}
+					return null;
+				}
+			});
+		}
+		for (Future<Void> f : pool.invokeAll(tasks)) {
+			f.get();
+		}
+	}
+
+	/**
+	 * find the shortcuts needed to contract v: for each active in neighbour
+	 * u, a local Dijkstra that avoids v and all non active vertices looks for
+	 * a witness path to every active out neighbour w no longer than u-v-w
+	 *
+	 * @param v
+	 *            : int - vertex to contract
+	 * @param worker
+	 *            : int - index of the scratch data to use
+	 * @return : int[] - pairs (in arc, out arc) of each shortcut
+	 */
+	private int[] shortcuts(int v, int worker) {
+		SearchState st = scratch[worker];
+		IntIndexedHeap pq = heaps[worker];
+		int[] mark = targetMark[worker];
+		int stamp = ++targetStamp[worker];
+		int targets = 0;
+		for (int j = 0; j < outSize[v]; j++) {
+			int w = head[out[v][j]];
+			if (state[w] == ACTIVE && mark[w] != stamp) {
+				mark[w] = stamp;
+				targets++;
+			}
+		}
+		int[] ret = new int[8];
+		int size = 0;
+		for (int i = 0; i < inSize[v]; i++) {
+			int a = in[v][i];
+			int u = tail[a];
+			if (state[u] != ACTIVE) {
+				continue;
+			}
+			long limit = -1;
+			for (int j = 0; j < outSize[v]; j++) {
+				int b = out[v][j];
+				if (state[head[b]] == ACTIVE && head[b] != u) {
+					limit = Math.max(limit, (long) weight[a] + weight[b]);
+				}
+			}
+			if (limit < 0) {
+				continue;
+			}
+
+			witnessSearch(u, v, limit, mark[u] == stamp ? targets - 1
+					: targets, mark, stamp, st, pq);
+			for (int j = 0; j < outSize[v]; j++) {
+				int b = out[v][j];
+				int w = head[b];
+				if (state[w] == ACTIVE && w != u
+						&& st.getDistance(w) > (long) weight[a] + weight[b]) {
+					if (size == ret.length) {
+						ret = Arrays.copyOf(ret, 2 * size);
+					}
+					ret[size++] = a;
+					ret[size++] = b;
+				}
+			}
+		}
+		return Arrays.copyOf(ret, size);
+	}
+
+	/**
+	 * bounded Dijkstra from u over active vertices other than v, it stops
+	 * once every target is settled, past the distance limit or after
+	 * DEF.CH_WITNESS_SETTLE_LIMIT vertices. A missed witness only costs an
+	 * extra shortcut.
+	 *
+	 * @param u
+	 *            : int - source of the search
+	 * @param v
+	 *            : int - vertex being contracted
+	 * @param limit
+	 *            : long - longest path of interest
+	 * @param targets
+	 *            : int - number of targets other than u
+	 * @param mark
+	 *            : int[] - targets are marked with the stamp
+	 * @param stamp
+	 *            : int - stamp of the running contraction
+	 * @param st
+	 *            : SearchState - output, search data
+	 * @param pq
+	 *            : IntIndexedHeap - empty scratch queue, left empty
+	 */
+	private void witnessSearch(int u, int v, long limit, int targets,
+			int[] mark, int stamp, SearchState st, IntIndexedHeap pq) {
+		st.reset();
+		st.setDistance(u, 0);
+		pq.insert(u, 0);
+		int settled = 0;
+		while (!pq.isEmpty()) {
+			int x = pq.deleteMin();
+			int dx = st.getDistance(x);
+			if (dx > limit || ++settled > DEF.CH_WITNESS_SETTLE_LIMIT) {
+				break;
+			}
+			if (x != u && mark[x] == stamp && --targets == 0) {
+				break; // every target has its final distance
+			}
+			for (int k = 0; k < outSize[x]; k++) {
+				int b = out[x][k];
+				int y = head[b];
+				if (y == v || state[y] != ACTIVE) {
+					continue;
+				}
+				int temp = dx + weight[b];
+				if (temp < st.getDistance(y)) {
+					st.setDistance(y, temp);
+					if (pq.contains(y)) {
+						pq.decreaseKey(y, temp);
+					} else {
+						pq.insert(y, temp);
+					}
+				}
+			}
+		}
+		pq.clear();
+	}
+
+	/**
+	 * add a shortcut from u to w, or lower the weight of the existing arc.
+	 * An arc between two active vertices is not part of any shortcut yet, so
+	 * it can be changed in place.
+	 *
+	 * @param u
+	 *            : int - tail
+	 * @param w
+	 *            : int - head
+	 * @param length
+	 *            : int - weight of the shortcut
+	 * @param a
+	 *            : int - arc from u to the contracted vertex
+	 * @param b
+	 *            : int - arc from the contracted vertex to w
+	 */
+	private void addShortcut(int u, int w, int length, int a, int b) {
+		for (int k = 0; k < outSize[u]; k++) {
+			int c = out[u][k];
+			if (head[c] == w) {
+				if (length < weight[c]) {
+					weight[c] = length;
+					first[c] = a;
+					second[c] = b;
+				}
+				return;
+			}
+		}
+		newArc(u, w, length, a, b);
+	}
+
+	/**
+	 * remove arcs to contracted vertices from the adjacency of u. The arcs
+	 * stay in the arc arrays as part of the hierarchy.
+	 *
+	 * @param u
+	 *            : int - active vertex
+	 */
+	private void dropInactiveArcs(int u) {
+		int size = 0;
+		for (int k = 0; k < outSize[u]; k++) {
+			if (state[head[out[u][k]]] == ACTIVE) {
+				out[u][size++] = out[u][k];
+			}
+		}
+		outSize[u] = size;
+		size = 0;
+		for (int k = 0; k < inSize[u]; k++) {
+			if (state[tail[in[u][k]]] == ACTIVE) {
+				in[u][size++] = in[u][k];
+			}
+		}
+		inSize[u] = size;
+	}
+
+	/**
+	 * append an arc to the arc arrays and to the adjacency of its ends
+	 *
+	 * @return : int - id of the new arc
+	 */
+	private int newArc(int u, int w, int length, int a, int b) {
+		if (numArcs == tail.length) {
+			int capacity = Math.max(16, 2 * numArcs);
+			tail = Arrays.copyOf(tail, capacity);
+			head = Arrays.copyOf(head, capacity);
+			weight = Arrays.copyOf(weight, capacity);
+			first = Arrays.copyOf(first, capacity);
+			second = Arrays.copyOf(second, capacity);
+		}
+		int c = numArcs++;
+		tail[c] = u;
+		head[c] = w;
+		weight[c] = length;
+		first[c] = a;
+		second[c] = b;
+		if (outSize[u] == out[u].length) {
+			out[u] = Arrays.copyOf(out[u], 2 * outSize[u]);
+		}
+		out[u][outSize[u]++] = c;
+		if (inSize[w] == in[w].length) {
+			in[w] = Arrays.copyOf(in[w], 2 * inSize[w]);
+		}
+		in[w][inSize[w]++] = c;
+		return c;
+	}
+}
@@ -0,0 +1,363 @@
+/**
+ * Single source shortest paths for graphs with a few negative weight edges.
+ * The part of the graph reachable from the source is split into strongly
+ * connected components, and the components are solved in topological order
+ * of the condensation, so a component is only entered once every component
+ * with an edge into it is final. Each component first pulls the distances
+ * of its vertices over the edges coming in from earlier components (through
+ * revAdj), then solves its inside: nothing for a single vertex without a
+ * self loop, Dijkstra seeded with every reached vertex if no inside edge is
+ * negative, and Bellman-Ford with subtree disassembly otherwise. Zero cycle
+ * sensitive, an inside zero weight edge also takes Bellman-Ford, which finds
+ * the zero weight cycles.
+ *
+ * A component only reads earlier components and only writes its own
+ * vertices, and no path joins two components of the same height (longest
+ * path to a sink of the condensation), so the components are solved from
+ * the greatest height down, those of one height in parallel. The result
+ * follows sp_bf: the same distances, or false with a vertex of a negative
+ * (or non-positive) cycle as the cycle vertex of the search state.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.Edge;
+import graph.EdgeListReader;
+import graph.Graph;
+import graph.GraphSnapshot;
+import graph.StrongComponents;
+import graph.Vertex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import pq.IntPairHeap;
+
+public class CondensationHybrid {
+	private final Graph g;
+	private final ExecutorService pool;
+
+	/**
+	 * Constructor for CondensationHybrid running on the common fork/join pool
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 */
+	public CondensationHybrid(Graph g) {
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for CondensationHybrid
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 * @param pool
+	 *            : ExecutorService - threads solving the components of a level
+	 */
+	public CondensationHybrid(Graph g, ExecutorService pool) {
+		this.g = g;
+		this.pool = pool;
+	}
+
+	/**
+	 * single source shortest path from s
+	 *
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 * @return : boolean - true if no non-positive or negative cycle is found;
+	 *         false otherwise
+	 */
+	public boolean run(Vertex s, final boolean zeroCycleSensitive,
+			final SearchState st) {
+		final StrongComponents sc = StrongComponents.reachable(g, s);
+		final int[] members = sc.vertices();
+		final int k = sc.count;
+		// position of each reached vertex in members
+		final int[] position = new int[g.numNodes + 1];
+		for (int i = 0; i < members.length; i++) {
+			position[members[i]] = i;
+		}
+
+		// components grouped by level, level l holding the components of
+		// height levels - 1 - l; the source component is the only one on top
+		int levels = sc.height(0) + 1;
+		int[] levelStart = new int[levels + 1];
+		for (int c = 0; c < k; c++) {
+			levelStart[levels - sc.height(c)]++;
+		}
+		for (int l = 0; l < levels; l++) {
+			levelStart[l + 1] += levelStart[l];
+		}
+		final int[] byLevel = new int[k];
+		int[] fill = new int[levels];
+		for (int c = 0; c < k; c++) {
+			int l = levels - 1 - sc.height(c);
+			byLevel[levelStart[l] + fill[l]++] = c;
+		}
+
+		st.reset();
+		st.setDistance(s.name, 0);
+		// the parent edges are allocated here, the workers only fill them in
+		st.setParentEdge(s.name, null);
+		try {
+			for (int l = 0; l < levels; l++) {
+				// chunks of whole components of about DEF.PARALLEL_GRAIN
+				// vertices
+				List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+				int lo = levelStart[l];
+				while (lo < levelStart[l + 1]) {
+					int hi = lo;
+					int vertices = 0;
+					while (hi < levelStart[l + 1]
+							&& vertices < DEF.PARALLEL_GRAIN) {
+						vertices += sc.size(byLevel[hi++]);
+					}
+					final int from = lo;
+					final int to = hi;
+					tasks.add(new Callable<Integer>() {
+						@Override
+						public Integer call() {
+							IntPairHeap heap = new IntPairHeap(
+									DEF.LAZY_HEAP_CAPACITY);
+							for (int i = from; i < to; i++) {
+								int c = byLevel[i];
+								int cycleVertex = solve(sc, position, c,
+										zeroCycleSensitive, st, heap);
+								if (cycleVertex != 0) {
+									return cycleVertex;
+								}
+							}
+							return 0;
+						}
+					});
+					lo = hi;
+				}
+				for (int cycleVertex : Workers.invoke(pool, tasks)) {
+					if (cycleVertex != 0) {
+						st.setCycleVertex(cycleVertex);
+						return false; // negative cycle
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Condensation hybrid interrupted",
+					e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Condensation hybrid failed",
+					e.getCause());
+		}
+		return true;
+	}
+
+	/**
+	 * solve one component once every earlier component is final
+	 *
+	 * @return : int - a vertex on a negative (or non-positive) cycle, 0 if
+	 *         there is none
+	 */
+	private int solve(StrongComponents sc, int[] position, int c,
+			boolean zeroCycleSensitive, SearchState st, IntPairHeap heap) {
+		int[] members = sc.vertices();
+		// pull the distances over the edges from earlier components
+		for (int i = sc.begin(c); i < sc.end(c); i++) {
+			Vertex v = g.verts.get(members[i]);
+			for (Edge e : v.revAdj) {
+				Vertex u = e.otherEnd(v);
+				if (sc.component(u.name) != c) {
+					relax(u, v, e, zeroCycleSensitive, st);
+				}
+			}
+		}
+		if (!sc.isCyclic(c)) {
+			return 0; // a single vertex, nothing inside
+		}
+		boolean negative = false;
+		for (int i = sc.begin(c); i < sc.end(c) && !negative; i++) {
+			Vertex u = g.verts.get(members[i]);
+			for (Edge e : u.Adj) {
+				if ((e.Weight < 0 || (zeroCycleSensitive && e.Weight == 0))
+						&& sc.component(e.otherEnd(u).name) == c) {
+					negative = true;
+					break;
+				}
+			}
+		}
+		if (negative) {
+			return bellmanFord(sc, position, c, zeroCycleSensitive, st);
+		}
+		dijkstra(sc, c, zeroCycleSensitive, st, heap);
+		return 0;
+	}
+
+	/**
+	 * Dijkstra with lazy deletion inside a component without negative edges,
+	 * starting from every vertex already reached
+	 */
+	private void dijkstra(StrongComponents sc, int c,
+			boolean zeroCycleSensitive, SearchState st, IntPairHeap heap) {
+		int[] members = sc.vertices();
+		heap.clear();
+		for (int i = sc.begin(c); i < sc.end(c); i++) {
+			int d = st.getDistance(members[i]);
+			if (d != SearchState.INFINITY) {
+				heap.insert(members[i], d);
+			}
+		}
+		while (!heap.isEmpty()) {
+			Vertex u = g.verts.get(heap.deleteMin());
+			if (st.isSeen(u.name)) {
+				continue; // outdated entry of a settled vertex
+			}
+			st.setSeen(u.name, true);
+			for (Edge e : u.Adj) {
+				Vertex v = e.otherEnd(u);
+				if (sc.component(v.name) == c && !st.isSeen(v.name)
+						&& relax(u, v, e, zeroCycleSensitive, st)) {
+					heap.insert(v.name, st.getDistance(v.name));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Bellman-Ford with subtree disassembly inside a component, as sp_bf. The
+	 * vertices already reached hang below a virtual root, and the tree is
+	 * indexed by position in the component so it costs O(size) per component.
+	 *
+	 * @return : int - a vertex on a negative (or non-positive) cycle, 0 if
+	 *         there is none
+	 */
+	private int bellmanFord(StrongComponents sc, int[] position, int c,
+			boolean zeroCycleSensitive, SearchState st) {
+		int[] members = sc.vertices();
+		int base = sc.begin(c) - 1; // local index of a vertex is i - base
+		int size = sc.size(c);
+		int root = size + 1;
+		ParentTree tree = new ParentTree(size + 1);
+		tree.init(root);
+		// every vertex is queued at most once at a time
+		int[] queue = new int[size];
+		int head = 0;
+		int count = 0;
+		for (int i = sc.begin(c); i < sc.end(c); i++) {
+			if (st.getDistance(members[i]) != SearchState.INFINITY) {
+				tree.attach(root, i - base);
+				queue[(head + count++) % size] = i;
+				st.setSeen(members[i], true);
+			}
+		}
+
+		while (count > 0) {
+			int i = queue[head];
+			head = (head + 1) % size;
+			count--;
+			Vertex u = g.verts.get(members[i]);
+			st.setSeen(u.name, false);
+			// u left the tree after it was queued, it will improve again
+			if (!tree.contains(i - base)) {
+				continue;
+			}
+
+			int du = st.getDistance(u.name);
+			for (Edge e : u.Adj) {
+				Vertex v = e.otherEnd(u);
+				if (sc.component(v.name) != c) {
+					continue;
+				}
+				int temp = du + e.Weight;
+				int dv = st.getDistance(v.name);
+				int j = position[v.name];
+				if (!(dv > temp || (zeroCycleSensitive && dv == temp && (st
+						.getParent(v.name) != u.name || !tree.contains(j
+						- base))))) {
+					continue;
+				}
+				st.setParent(v.name, u.name);
+				st.setParentEdge(v.name, e);
+				if (!tree.attach(i - base, j - base)) {
+					return v.name; // negative cycle
+				}
+				st.setDistance(v.name, temp);
+				if (!st.isSeen(v.name)) {
+					queue[(head + count++) % size] = j;
+					st.setSeen(v.name, true);
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * helper method for relaxing edges as in ShortestPath, keeping the parent
+	 * edge for findNonPosCycle
+	 *
+	 * @return : boolean - true if edge is relaxed, false otherwise
+	 */
+	private static boolean relax(Vertex u, Vertex v, Edge e,
+			boolean zeroCycleSensitive, SearchState st) {
+		int du = st.getDistance(u.name);
+		if (du != SearchState.INFINITY) {
+			int temp = du + e.Weight;
+			int dv = st.getDistance(v.name);
+			if (dv > temp || (zeroCycleSensitive && dv == temp)) {
+				st.setDistance(v.name, temp);
+				st.setParent(v.name, u.name);
+				st.setParentEdge(v.name, e);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Driver function comparing the hybrid with sp_bf from DEF.SOURCE
+	 *
+	 * @param args
+	 *            argument - input graph file or snapshot
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java CondensationHybrid <graph file or snapshot>");
+			return;
+		}
+		File file = new File(args[0]);
+		Graph g = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.map(file)
+				.toGraph() : EdgeListReader.readGraph(file, true);
+		Vertex source = ShortestPath.findSource(g);
+
+		SearchState expected = new SearchState(g.numNodes);
+		long start = System.nanoTime();
+		boolean noCycle = ShortestPath.sp_bf(g, source, false, expected);
+		System.out.println("sp_bf: " + (System.nanoTime() - start) / 1000000
+				+ " ms" + (noCycle ? "" : ", negative cycle"));
+
+		SearchState st = new SearchState(g.numNodes);
+		start = System.nanoTime();
+		StrongComponents sc = StrongComponents.reachable(g, source);
+		System.out.println(sc.count + " components: "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+		start = System.nanoTime();
+		boolean result = new CondensationHybrid(g).run(source, false, st);
+		long time = System.nanoTime() - start;
+		boolean same = result == noCycle;
+		for (int v = 1; noCycle && v <= g.numNodes; v++) {
+			same &= st.getDistance(v) == expected.getDistance(v);
+		}
+		System.out.println("hybrid: " + time / 1000000 + " ms"
+				+ (same ? "" : " MISMATCH"));
+	}
+}
@@ -0,0 +1,396 @@
+/**
+ * Contraction Hierarchies for fast point to point queries on graphs with
+ * non-negative edge weights. Preprocessing (see CHPreprocessor) removes the
+ * vertices one by one and adds shortcuts that keep distances between the
+ * remaining vertices. A query then runs a bidirectional Dijkstra that only
+ * climbs to higher ranked vertices: forward from the source over the upward
+ * graph, backward from the target over the downward graph. Both are held in
+ * CSR arrays. Shortcuts remember the two arcs they replace, so a path is
+ * unpacked into original edges.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.Edge;
+import graph.EdgeListReader;
+import graph.Graph;
+import graph.Vertex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import pq.IntIndexedHeap;
+import pq.IntPQ;
+
+public class ContractionHierarchy {
+	public final int numNodes; // number of vertices of the graph
+	public final int numShortcuts; // arcs added by the contraction
+
+	private final int[] rank; // contraction order of each vertex
+
+	// arcs of the hierarchy, ids below numOriginal are original edges
+	private final Edge[] original;
+	private final int[] first; // first half of a shortcut, -1 if original
+	private final int[] second; // second half of a shortcut
+
+	// upward graph: arcs from u to higher ranked vertices
+	private final int[] upStart;
+	private final int[] upHead;
+	private final int[] upWeight;
+	private final int[] upArc;
+	// downward graph, stored at the head: arcs into v from higher ranked
+	// vertices
+	private final int[] downStart;
+	private final int[] downTail;
+	private final int[] downWeight;
+	private final int[] downArc;
+
+	/**
+	 * Constructor for ContractionHierarchy, splits the arcs into the upward
+	 * and downward search graphs
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @param rank
+	 *            : int[] - contraction order of each vertex
+	 * @param numArcs
+	 *            : int - number of arcs used in the arc arrays
+	 * @param numOriginal
+	 *            : int - number of arcs that are original edges
+	 * @param original
+	 *            : Edge[] - edge of each original arc
+	 * @param tail
+	 *            : int[] - tail of each arc
+	 * @param head
+	 *            : int[] - head of each arc
+	 * @param weight
+	 *            : int[] - weight of each arc
+	 * @param first
+	 *            : int[] - first half of each shortcut
+	 * @param second
+	 *            : int[] - second half of each shortcut
+	 */
+	ContractionHierarchy(int n, int[] rank, int numArcs, int numOriginal,
+			Edge[] original, int[] tail, int[] head, int[] weight,
+			int[] first, int[] second) {
+		this.numNodes = n;
+		this.numShortcuts = numArcs - numOriginal;
+		this.rank = rank;
+		this.original = original;
+		this.first = first;
+		this.second = second;
+
+		upStart = new int[n + 2];
+		downStart = new int[n + 2];
+		int ups = 0;
+		for (int c = 0; c < numArcs; c++) {
+			if (rank[tail[c]] < rank[head[c]]) {
+				upStart[tail[c] + 1]++;
+				ups++;
+			} else {
+				downStart[head[c] + 1]++;
+			}
+		}
+		for (int v = 1; v <= n + 1; v++) {
+			upStart[v] += upStart[v - 1];
+			downStart[v] += downStart[v - 1];
+		}
+		upHead = new int[ups];
+		upWeight = new int[ups];
+		upArc = new int[ups];
+		downTail = new int[numArcs - ups];
+		downWeight = new int[numArcs - ups];
+		downArc = new int[numArcs - ups];
+		int[] upNext = new int[n + 1];
+		int[] downNext = new int[n + 1];
+		System.arraycopy(upStart, 0, upNext, 0, n + 1);
+		System.arraycopy(downStart, 0, downNext, 0, n + 1);
+		for (int c = 0; c < numArcs; c++) {
+			if (rank[tail[c]] < rank[head[c]]) {
+				int i = upNext[tail[c]]++;
+				upHead[i] = head[c];
+				upWeight[i] = weight[c];
+				upArc[i] = c;
+			} else {
+				int i = downNext[head[c]]++;
+				downTail[i] = tail[c];
+				downWeight[i] = weight[c];
+				downArc[i] = c;
+			}
+		}
+	}
+
+	/**
+	 * contract a graph
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative weight edge
+	 * @param threads
+	 *            : int - number of threads used for the contraction
+	 * @return : ContractionHierarchy - the hierarchy of the graph
+	 */
+	public static ContractionHierarchy build(Graph g, int threads) {
+		return new CHPreprocessor(g, threads).run();
+	}
+
+	/**
+	 * shortest path query
+	 *
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param t
+	 *            : Vertex - target vertex
+	 * @param fwd
+	 *            : SearchState - search data of the upward search from s
+	 * @param bwd
+	 *            : SearchState - search data of the upward search from t
+	 * @return : PathResult - distance and path from s to t in original edges
+	 */
+	public PathResult query(Vertex s, Vertex t, SearchState fwd,
+			SearchState bwd) {
+		return query(s, t, fwd, bwd, new IntIndexedHeap(numNodes),
+				new IntIndexedHeap(numNodes));
+	}
+
+	/**
+	 * shortest path query over given priority queues. The queues are cleared
+	 * before returning so they can be reused by the next query.
+	 *
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param t
+	 *            : Vertex - target vertex
+	 * @param fwd
+	 *            : SearchState - search data of the upward search from s
+	 * @param bwd
+	 *            : SearchState - search data of the upward search from t
+	 * @param forward
+	 *            : IntPQ - empty queue with capacity numNodes
+	 * @param backward
+	 *            : IntPQ - empty queue with capacity numNodes
+	 * @return : PathResult - distance and path from s to t in original edges
+	 */
+	public PathResult query(Vertex s, Vertex t, SearchState fwd,
+			SearchState bwd, IntPQ forward, IntPQ backward) {
+		fwd.reset();
+		bwd.reset();
+		fwd.setDistance(s.name, 0);
+		bwd.setDistance(t.name, 0);
+		forward.insert(s.name, 0);
+		backward.insert(t.name, 0);
+
+		long best = Long.MAX_VALUE; // shortest s-t path so far
+		int meet = 0; // highest ranked vertex of that path
+		int settledForward = 0;
+		int settledBackward = 0;
+		boolean forwardDone = false;
+		boolean backwardDone = false;
+
+		// alternate the two directions; a direction is done once its next
+		// vertex is no closer than the best path, since it only climbs
+		while (!forwardDone || !backwardDone) {
+			boolean isForward = !forwardDone
+					&& (backwardDone || settledForward <= settledBackward);
+			IntPQ pq = isForward ? forward : backward;
+			SearchState mine = isForward ? fwd : bwd;
+			SearchState other = isForward ? bwd : fwd;
+			int u = pq.deleteMin();
+			if (u < 0 || mine.getDistance(u) >= best) {
+				if (isForward) {
+					forwardDone = true;
+				} else {
+					backwardDone = true;
+				}
+				continue;
+			}
+
+			int du = mine.getDistance(u);
+			if (isForward) {
+				settledForward++;
+			} else {
+				settledBackward++;
+			}
+			if (other.getDistance(u) != SearchState.INFINITY
+					&& (long) du + other.getDistance(u) < best) {
+				best = (long) du + other.getDistance(u);
+				meet = u;
+			}
+
+			int[] start = isForward ? upStart : downStart;
+			int[] end = isForward ? upHead : downTail;
+			int[] length = isForward ? upWeight : downWeight;
+			for (int i = start[u]; i < start[u + 1]; i++) {
+				int v = end[i];
+				int temp = du + length[i];
+				if (temp < mine.getDistance(v)) {
+					mine.setDistance(v, temp);
+					mine.setParent(v, u);
+					if (pq.contains(v)) {
+						pq.decreaseKey(v, temp);
+					} else {
+						pq.insert(v, temp);
+					}
+				}
+			}
+		}
+		forward.clear();
+		backward.clear();
+
+		if (meet == 0) {
+			return new PathResult(SearchState.INFINITY, null, settledForward,
+					settledBackward);
+		}
+		return new PathResult(best, unpackPath(s.name, t.name, meet, fwd, bwd),
+				settledForward, settledBackward);
+	}
+
+	/**
+	 * follow the parents of both searches from the meeting vertex and unpack
+	 * every arc on the way into original edges
+	 *
+	 * @param s
+	 *            : int - source vertex
+	 * @param t
+	 *            : int - target vertex
+	 * @param meet
+	 *            : int - highest vertex of the path
+	 * @param fwd
+	 *            : SearchState - forward search data
+	 * @param bwd
+	 *            : SearchState - backward search data
+	 * @return : List<Edge> - edges from s to t
+	 */
+	private List<Edge> unpackPath(int s, int t, int meet, SearchState fwd,
+			SearchState bwd) {
+		LinkedList<Integer> arcs = new LinkedList<Integer>();
+		for (int v = meet; v != s; v = fwd.getParent(v)) {
+			int u = fwd.getParent(v);
+			int w = fwd.getDistance(v) - fwd.getDistance(u);
+			for (int i = upStart[u]; i < upStart[u + 1]; i++) {
+				if (upHead[i] == v && upWeight[i] == w) {
+					arcs.addFirst(upArc[i]);
+					break;
+				}
+			}
+		}
+		for (int v = meet; v != t; v = bwd.getParent(v)) {
+			int u = bwd.getParent(v);
+			int w = bwd.getDistance(v) - bwd.getDistance(u);
+			for (int i = downStart[u]; i < downStart[u + 1]; i++) {
+				if (downTail[i] == v && downWeight[i] == w) {
+					arcs.addLast(downArc[i]);
+					break;
+				}
+			}
+		}
+
+		List<Edge> ret = new LinkedList<Edge>();
+		for (int c : arcs) {
+			unpack(c, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * replace an arc by the original edges it stands for, in path order
+	 *
+	 * @param c
+	 *            : int - arc id
+	 * @param ret
+	 *            : List<Edge> - output, edges are appended
+	 */
+	private void unpack(int c, List<Edge> ret) {
+		int[] stack = new int[16];
+		int size = 0;
+		stack[size++] = c;
+		while (size > 0) {
+			int a = stack[--size];
+			if (first[a] < 0) {
+				ret.add(original[a]);
+			} else {
+				if (size + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				}
+				stack[size++] = second[a];
+				stack[size++] = first[a];
+			}
+		}
+	}
+
+	/**
+	 * contraction order of a vertex, higher ranked vertices were contracted
+	 * later
+	 *
+	 * @param v
+	 *            : int - vertex name
+	 * @return : int - rank of v, from 0 to numNodes - 1
+	 */
+	public int getRank(int v) {
+		return rank[v];
+	}
+
+	/**
+	 * Approximate footprint of the search graphs in bytes
+	 *
+	 * @return : long - bytes used by the hierarchy
+	 */
+	public long memoryBytes() {
+		return 4L * (rank.length + first.length + second.length
+				+ upStart.length + downStart.length + 3L * upHead.length + 3L * downTail.length)
+				+ 4L * original.length;
+	}
+
+	/**
+	 * Driver function comparing CH queries with plain Dijkstra on random
+	 * queries
+	 *
+	 * @param args
+	 *            argument - input graph file
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java ContractionHierarchy <graph file>");
+			return;
+		}
+		Graph g = EdgeListReader.readGraph(new File(args[0]), true);
+
+		long start = System.nanoTime();
+		ContractionHierarchy ch = build(g, Runtime.getRuntime()
+				.availableProcessors());
+		System.out.println("Preprocessing: " + (System.nanoTime() - start)
+				/ 1000000 + " ms, " + ch.numShortcuts + " shortcuts");
+
+		Random random = new Random(2);
+		SearchState fwd = new SearchState(g.numNodes);
+		SearchState bwd = new SearchState(g.numNodes);
+		IntIndexedHeap forward = new IntIndexedHeap(g.numNodes);
+		IntIndexedHeap backward = new IntIndexedHeap(g.numNodes);
+		long dijkstraTime = 0;
+		long chTime = 0;
+		long chSettled = 0;
+		int queries = 100;
+		for (int q = 0; q < queries; q++) {
+			Vertex s = g.verts.get(1 + random.nextInt(g.numNodes));
+			Vertex t = g.verts.get(1 + random.nextInt(g.numNodes));
+			start = System.nanoTime();
+			PathResult plain = PointToPoint.dijkstra(g, s, t, fwd, forward);
+			dijkstraTime += System.nanoTime() - start;
+			start = System.nanoTime();
+			PathResult fast = ch.query(s, t, fwd, bwd, forward, backward);
+			chTime += System.nanoTime() - start;
+			if (plain.distance != fast.distance) {
+				System.out.println("Mismatch for " + s + " -> " + t);
+			}
+			chSettled += fast.explored();
+		}
+		System.out.println("Dijkstra: " + dijkstraTime / queries / 1000
+				+ " us");
+		System.out.println("CH: " + chTime / queries / 1000 + " us, settled "
+				+ chSettled / queries);
+	}
+}
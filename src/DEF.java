@@ -12,6 +12,41 @@ public class DEF {
 
 	protected static final int SIZE_CUT_OFF = 100;
 	protected static final int SOURCE = 1;
+	// initial capacity of the lazy deletion heap, it grows with the search
+	protected static final int LAZY_HEAP_CAPACITY = 64;
+	// largest edge weight for which Dijkstra uses Dial's bucket queue
+	protected static final int DIAL_WEIGHT_CUT_OFF = 1024;
+
+	// priority queue implementations selectable for Dijkstra
+	protected static final int QUEUE_BINARY = 1;
+	protected static final int QUEUE_DARY = 2;
+	protected static final int QUEUE_PAIRING = 3;
+	protected static final int QUEUE_QUATERNARY = 4;
+	protected static final int QUEUE_DIAL = 5;
+	protected static final int QUEUE_RADIX = 6;
+	protected static final int DARY_ARITY = 8;
+
+	// landmark selection strategies for ALT
+	protected static final int LANDMARK_FARTHEST = 1;
+	protected static final int LANDMARK_AVOID = 2;
+	protected static final int ALT_LANDMARKS = 16;
+	// vertices a witness search may settle before giving up on a witness
+	protected static final int CH_WITNESS_SETTLE_LIMIT = 50;
+	// vertices handed to one task by the parallel algorithms
+	protected static final int PARALLEL_GRAIN = 512;
+	// direction switches of the parallel BFS, bottom-up once frontier arcs
+	// exceed unvisited arcs / alpha, top-down again below n / beta vertices
+	protected static final int BFS_ALPHA = 14;
+	protected static final int BFS_BETA = 24;
+	// bit words per vertex of the multi-source BFS, 64 sources each
+	protected static final int MSBFS_WORDS = 4;
+	// frontiers below n / MSBFS_SPARSE vertices are kept as lists
+	protected static final int MSBFS_SPARSE = 32;
+
+	// query shapes known to the algorithm selector
+	protected static final int QUERY_SINGLE_SOURCE = 1;
+	protected static final int QUERY_POINT_TO_POINT = 2;
+	protected static final int QUERY_MANY_TO_MANY = 3;
 
 	protected static final String ERROR_LEVEL1 = "Unable to solve problem. Graph has a negative cycle";
 	protected static final String ERROR_LEVEL2 = "Non-positive cycle in graph. DAC is not applicable";
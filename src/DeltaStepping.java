@@ -0,0 +1,347 @@
+/**
+ * Parallel delta-stepping single source shortest path for graphs with only
+ * non-negative edge weights. Tentative distances are grouped in buckets of
+ * width delta. The smallest non-empty bucket is emptied by relaxing the light
+ * arcs (weight at most delta) of its vertices in parallel until no vertex
+ * falls back into it, then the heavy arcs of every vertex removed from it are
+ * relaxed once, also in parallel.
+ *
+ * Distance and parent of each vertex share one long, distance in the high
+ * half, and are only replaced by a compare and set with a strictly smaller
+ * distance. Distances are therefore exactly those of sp_dijkstra; parents
+ * form a shortest path tree, but among equally short paths the parent may
+ * differ from the one sp_dijkstra picks.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.EdgeListReader;
+import graph.GraphSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class DeltaStepping {
+	private static final long PARENT_MASK = 0xFFFFFFFFL;
+
+	public final int numNodes;
+	public final int delta; // bucket width
+	private final ExecutorService pool;
+
+	// arcs of each vertex, light arcs [start[u], mid[u]) before heavy arcs
+	// [mid[u], start[u + 1])
+	private final int[] start;
+	private final int[] mid;
+	private final int[] head;
+	private final int[] weight;
+	private final int numBuckets; // cyclic buckets, enough for any arc
+
+	/**
+	 * Constructor for DeltaStepping with an automatically chosen delta,
+	 * running on the common fork/join pool
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with only non-negative weight edge
+	 */
+	public DeltaStepping(CSRGraph g) {
+		this(g, autoDelta(g), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for DeltaStepping, splits the arcs of every vertex into
+	 * light and heavy ones
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with only non-negative weight edge
+	 * @param delta
+	 *            : int - bucket width, at least 1
+	 * @param pool
+	 *            : ExecutorService - threads running the relaxations
+	 */
+	public DeltaStepping(CSRGraph g, int delta, ExecutorService pool) {
+		if (delta < 1) {
+			throw new IllegalArgumentException("delta must be positive: "
+					+ delta);
+		}
+		this.numNodes = g.numNodes;
+		this.delta = delta;
+		this.pool = pool;
+		start = new int[numNodes + 2];
+		mid = new int[numNodes + 1];
+		head = new int[g.numEdges];
+		weight = new int[g.numEdges];
+		int maxWeight = 0;
+		int i = 0;
+		for (int u = 1; u <= numNodes; u++) {
+			start[u] = i;
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				if (g.arcWeight(a) < 0) {
+					throw new IllegalArgumentException(
+							"Delta-stepping needs non-negative weights");
+				}
+				if (g.arcWeight(a) <= delta) {
+					head[i] = g.arcHead(a);
+					weight[i++] = g.arcWeight(a);
+				}
+				maxWeight = Math.max(maxWeight, g.arcWeight(a));
+			}
+			mid[u] = i;
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				if (g.arcWeight(a) > delta) {
+					head[i] = g.arcHead(a);
+					weight[i++] = g.arcWeight(a);
+				}
+			}
+		}
+		start[numNodes + 1] = i;
+		numBuckets = maxWeight / delta + 2;
+	}
+
+	/**
+	 * bucket width from the largest weight and the average out degree, so a
+	 * bucket holds about one arc weight per neighbour
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @return : int - delta, at least 1
+	 */
+	public static int autoDelta(CSRGraph g) {
+		int maxWeight = 0;
+		for (int a = 0; a < g.numEdges; a++) {
+			maxWeight = Math.max(maxWeight, g.arcWeight(a));
+		}
+		double degree = Math.max(1.0, (double) g.numEdges
+				/ Math.max(1, g.numNodes));
+		return Math.max(1, (int) (maxWeight / degree));
+	}
+
+	/**
+	 * single source shortest path from s
+	 *
+	 * @param s
+	 *            : int - source vertex
+	 * @param st
+	 *            : SearchState - output, distance and parent of each vertex
+	 */
+	public void run(int s, SearchState st) {
+		AtomicLongArray label = new AtomicLongArray(numNodes + 1);
+		long unreached = pack(SearchState.INFINITY, 0);
+		for (int v = 1; v <= numNodes; v++) {
+			label.set(v, unreached);
+		}
+		label.set(s, pack(0, 0));
+
+		int[][] bucket = new int[numBuckets][];
+		int[] bucketSize = new int[numBuckets];
+		for (int b = 0; b < numBuckets; b++) {
+			bucket[b] = new int[16];
+		}
+		int[] taken = new int[numNodes + 1]; // pass that last took a vertex
+		int[] removedIn = new int[numNodes + 1]; // bucket that last removed it
+		int pass = 0;
+		int pending = 1; // entries in all buckets, including stale ones
+		bucket[0][bucketSize[0]++] = s;
+
+		int[] frontier = new int[16];
+		int[] removed = new int[16]; // vertices taken from the bucket
+		int i = 0; // absolute index of the current bucket
+		try {
+			while (pending > 0) {
+				while (bucketSize[i % numBuckets] == 0) {
+					i++;
+				}
+				int b = i % numBuckets;
+				int removedSize = 0;
+				while (bucketSize[b] > 0) {
+					// take the live, distinct entries of the bucket
+					int size = 0;
+					int entries = bucketSize[b];
+					frontier = ensure(frontier, entries);
+					removed = ensure(removed, removedSize + entries);
+					pass++;
+					for (int k = 0; k < entries; k++) {
+						int v = bucket[b][k];
+						if (distance(label.get(v)) / delta == i && taken[v] != pass) {
+							taken[v] = pass;
+							frontier[size++] = v;
+							if (removedIn[v] != i + 1) {
+								removedIn[v] = i + 1;
+								removed[removedSize++] = v;
+							}
+						}
+					}
+					bucketSize[b] = 0;
+					pending -= entries;
+					pending += merge(relax(frontier, size, true, label),
+							label, bucket, bucketSize);
+				}
+				pending += merge(relax(removed, removedSize, false, label),
+						label, bucket, bucketSize);
+				i++;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Delta-stepping interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Delta-stepping failed",
+					e.getCause());
+		}
+
+		st.reset();
+		for (int v = 1; v <= numNodes; v++) {
+			long l = label.get(v);
+			if (distance(l) != SearchState.INFINITY) {
+				st.setDistance(v, distance(l));
+				st.setParent(v, (int) (l & PARENT_MASK));
+			}
+		}
+	}
+
+	/**
+	 * relax the light or heavy arcs of some vertices in parallel, in chunks
+	 * of DEF.PARALLEL_GRAIN vertices
+	 *
+	 * @param vertices
+	 *            : int[] - vertices to relax
+	 * @param size
+	 *            : int - used length of vertices
+	 * @param light
+	 *            : boolean - true for light arcs, false for heavy arcs
+	 * @param label
+	 *            : AtomicLongArray - packed distance and parent
+	 * @return : List<int[]> - improved vertices of each chunk, first entry is
+	 *         the count
+	 */
+	private List<int[]> relax(final int[] vertices, int size,
+			final boolean light, final AtomicLongArray label)
+			throws InterruptedException, ExecutionException {
+		List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+		for (int lo = 0; lo < size; lo += DEF.PARALLEL_GRAIN) {
+			final int from = lo;
+			final int to = Math.min(size, lo + DEF.PARALLEL_GRAIN);
+			tasks.add(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					int[] improved = new int[16];
+					int count = 0;
+					for (int k = from; k < to; k++) {
+						int u = vertices[k];
+						int du = distance(label.get(u));
+						int end = light ? mid[u] : start[u + 1];
+						for (int a = light ? start[u] : mid[u]; a < end; a++) {
+							int v = head[a];
+							int temp = du + weight[a];
+							long current = label.get(v);
+							while (temp < distance(current)) {
+								if (label.compareAndSet(v, current, pack(temp,
+										u))) {
+									if (count + 1 == improved.length) {
+										improved = Arrays.copyOf(improved,
+												2 * improved.length);
+									}
+									improved[++count] = v;
+									break;
+								}
+								current = label.get(v);
+							}
+						}
+					}
+					improved[0] = count;
+					return improved;
+				}
+			});
+		}
+		return Workers.invoke(pool, tasks);
+	}
+
+	/**
+	 * put improved vertices into the bucket of their new distance
+	 *
+	 * @return : int - number of entries added
+	 */
+	private int merge(List<int[]> improved, AtomicLongArray label,
+			int[][] bucket, int[] bucketSize) {
+		int added = 0;
+		for (int[] chunk : improved) {
+			for (int k = 1; k <= chunk[0]; k++) {
+				int v = chunk[k];
+				int b = distance(label.get(v)) / delta % numBuckets;
+				if (bucketSize[b] == bucket[b].length) {
+					bucket[b] = Arrays.copyOf(bucket[b], 2 * bucketSize[b]);
+				}
+				bucket[b][bucketSize[b]++] = v;
+				added++;
+			}
+		}
+		return added;
+	}
+
+	private static int[] ensure(int[] a, int length) {
+		return a.length >= length ? a : Arrays.copyOf(a, Math.max(length,
+				2 * a.length));
+	}
+
+	private static long pack(int distance, int parent) {
+		return ((long) distance << 32) | parent;
+	}
+
+	private static int distance(long label) {
+		return (int) (label >>> 32);
+	}
+
+	/**
+	 * Driver function comparing delta-stepping with sp_dijkstra from
+	 * DEF.SOURCE for a growing number of threads
+	 *
+	 * @param args
+	 *            argument - input graph file or snapshot, optional delta
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java DeltaStepping <graph file or snapshot> [delta]");
+			return;
+		}
+		File file = new File(args[0]);
+		CSRGraph g = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.load(file)
+				: EdgeListReader.readCSRGraph(file);
+		int delta = args.length > 1 ? Integer.parseInt(args[1])
+				: autoDelta(g);
+
+		SearchState expected = new SearchState(g.numNodes);
+		long start = System.nanoTime();
+		ShortestPath.sp_dijkstra(g, DEF.SOURCE, false, expected);
+		System.out.println("sp_dijkstra: " + (System.nanoTime() - start)
+				/ 1000000 + " ms");
+
+		SearchState st = new SearchState(g.numNodes);
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			DeltaStepping engine = new DeltaStepping(g, delta, pool);
+			long best = Long.MAX_VALUE;
+			for (int r = 0; r < 3; r++) {
+				start = System.nanoTime();
+				engine.run(DEF.SOURCE, st);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			pool.shutdown();
+			boolean same = true;
+			for (int v = 1; v <= g.numNodes; v++) {
+				same &= st.getDistance(v) == expected.getDistance(v);
+			}
+			System.out.println("delta " + delta + ", " + threads
+					+ " threads: " + best / 1000000 + " ms"
+					+ (same ? "" : " MISMATCH"));
+		}
+	}
+}
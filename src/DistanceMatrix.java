@@ -0,0 +1,259 @@
+/**
+ * Distances from a list of sources to every vertex, one row per source, as
+ * 32 bit integers (SearchState.INFINITY if unreachable). Rows are kept in
+ * blocks of at most 2^28 entries, each an IntBuffer on the heap or, off heap,
+ * a direct buffer, so the matrix is neither limited to one Java array nor
+ * counted against the heap when it is large.
+ *
+ * A matrix file holds a 16 byte header (magic, version, rows, columns), the
+ * source of every row and then the rows, all little endian 32 bit integers.
+ * FileSink writes rows straight to such a file as they are computed, so a
+ * matrix larger than memory can still be produced, and map() reads a file
+ * back memory mapped.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+public class DistanceMatrix implements Johnson.RowSink {
+	public static final int MAGIC = 0x31584D44; // "DMX1" in little endian
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 16;
+	private static final int BLOCK_ENTRIES = 1 << 28;
+
+	public final int rows;
+	public final int cols; // number of vertices, column v - 1 holds vertex v
+	private final int[] sources;
+	private final int rowsPerBlock;
+	private final IntBuffer[] blocks;
+
+	/**
+	 * Constructor for an empty DistanceMatrix, every entry is unreachable
+	 *
+	 * @param sources
+	 *            : int[] - source vertex of each row
+	 * @param cols
+	 *            : int - number of vertices
+	 * @param offHeap
+	 *            : boolean - true to keep the entries in direct buffers
+	 */
+	public DistanceMatrix(int[] sources, int cols, boolean offHeap) {
+		this.rows = sources.length;
+		this.cols = cols;
+		this.sources = sources.clone();
+		rowsPerBlock = Math.max(1, BLOCK_ENTRIES / Math.max(1, cols));
+		blocks = new IntBuffer[(rows + rowsPerBlock - 1) / rowsPerBlock];
+		for (int b = 0; b < blocks.length; b++) {
+			int entries = Math.min(rowsPerBlock, rows - b * rowsPerBlock)
+					* cols;
+			blocks[b] = offHeap ? ByteBuffer.allocateDirect(4 * entries)
+					.order(ByteOrder.nativeOrder()).asIntBuffer() : IntBuffer
+					.allocate(entries);
+			for (int i = 0; i < entries; i++) {
+				blocks[b].put(i, SearchState.INFINITY);
+			}
+		}
+	}
+
+	private DistanceMatrix(int[] sources, int cols, IntBuffer[] blocks,
+			int rowsPerBlock) {
+		this.rows = sources.length;
+		this.cols = cols;
+		this.sources = sources;
+		this.blocks = blocks;
+		this.rowsPerBlock = rowsPerBlock;
+	}
+
+	/** source vertex of row i */
+	public int source(int i) {
+		return sources[i];
+	}
+
+	/**
+	 * distance of one entry
+	 *
+	 * @param i
+	 *            : int - row
+	 * @param v
+	 *            : int - vertex
+	 * @return : int - distance from the source of row i to v
+	 */
+	public int get(int i, int v) {
+		return blocks[i / rowsPerBlock].get((i % rowsPerBlock) * cols + v - 1);
+	}
+
+	/**
+	 * store a row, rows can be stored from several threads at once
+	 *
+	 * @param index
+	 *            : int - row
+	 * @param source
+	 *            : int - source vertex of the row
+	 * @param distance
+	 *            : int[] - distance of each vertex 1..cols
+	 */
+	@Override
+	public void row(int index, int source, int[] distance) {
+		IntBuffer block = blocks[index / rowsPerBlock];
+		int offset = (index % rowsPerBlock) * cols;
+		for (int v = 1; v <= cols; v++) {
+			block.put(offset + v - 1, distance[v]);
+		}
+	}
+
+	/** bytes held by the entries */
+	public long memoryBytes() {
+		return 4L * rows * cols + 4L * rows;
+	}
+
+	/**
+	 * Write the matrix to a file, replacing any existing content
+	 *
+	 * @param file
+	 *            : File - output file
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		try (FileSink sink = new FileSink(file, sources, cols)) {
+			int[] distance = new int[cols + 1];
+			for (int i = 0; i < rows; i++) {
+				for (int v = 1; v <= cols; v++) {
+					distance[v] = get(i, v);
+				}
+				sink.row(i, sources[i], distance);
+			}
+		}
+	}
+
+	/**
+	 * Memory map a matrix file as a read only matrix
+	 *
+	 * @param file
+	 *            : File - matrix file
+	 * @return : DistanceMatrix - matrix backed by the mapped file
+	 * @throws IOException
+	 *             if the file is not a matrix of a supported version
+	 */
+	public static DistanceMatrix map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel fc = raf.getChannel()) {
+			if (fc.size() < HEADER_BYTES) {
+				throw new IOException("Not a distance matrix: " + file);
+			}
+			ByteBuffer header = fc.map(FileChannel.MapMode.READ_ONLY, 0,
+					HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a distance matrix: " + file);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported distance matrix version "
+						+ version + ": " + file);
+			}
+			int rows = header.getInt();
+			int cols = header.getInt();
+			if (fc.size() != HEADER_BYTES + 4L * rows + 4L * rows * cols) {
+				throw new IOException("Truncated distance matrix: " + file);
+			}
+
+			int[] sources = new int[rows];
+			fc.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 4L * rows)
+					.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(sources);
+			int rowsPerBlock = Math.max(1, BLOCK_ENTRIES / Math.max(1, cols));
+			IntBuffer[] blocks = new IntBuffer[(rows + rowsPerBlock - 1)
+					/ rowsPerBlock];
+			long offset = HEADER_BYTES + 4L * rows;
+			for (int b = 0; b < blocks.length; b++) {
+				long bytes = 4L * Math.min(rowsPerBlock, rows - b * rowsPerBlock)
+						* cols;
+				blocks[b] = fc.map(FileChannel.MapMode.READ_ONLY, offset, bytes)
+						.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+				offset += bytes;
+			}
+			return new DistanceMatrix(sources, cols, blocks, rowsPerBlock);
+		}
+	}
+
+	/**
+	 * Row sink writing each row to its place in a matrix file as soon as it
+	 * arrives, in any order and from several threads at once
+	 */
+	public static class FileSink implements Johnson.RowSink, Closeable {
+		private final RandomAccessFile raf;
+		private final FileChannel fc;
+		private final int cols;
+		private final long dataOffset;
+
+		/**
+		 * Constructor for FileSink, writes the header and sources
+		 *
+		 * @param file
+		 *            : File - output file, replaced
+		 * @param sources
+		 *            : int[] - source vertex of each row
+		 * @param cols
+		 *            : int - number of vertices
+		 * @throws IOException
+		 */
+		public FileSink(File file, int[] sources, int cols) throws IOException {
+			this.cols = cols;
+			raf = new RandomAccessFile(file, "rw");
+			fc = raf.getChannel();
+			fc.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(
+					HEADER_BYTES + 4 * sources.length).order(
+					ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(sources.length);
+			header.putInt(cols);
+			for (int s : sources) {
+				header.putInt(s);
+			}
+			header.flip();
+			write(header, 0);
+			dataOffset = HEADER_BYTES + 4L * sources.length;
+			// size the file up front, rows may arrive out of order
+			if (sources.length > 0 && cols > 0) {
+				write(ByteBuffer.allocate(1), dataOffset + 4L * sources.length
+						* cols - 1);
+			}
+		}
+
+		@Override
+		public void row(int index, int source, int[] distance)
+				throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(4 * cols).order(
+					ByteOrder.LITTLE_ENDIAN);
+			for (int v = 1; v <= cols; v++) {
+				buffer.putInt(distance[v]);
+			}
+			buffer.flip();
+			write(buffer, dataOffset + 4L * index * cols);
+		}
+
+		private void write(ByteBuffer buffer, long position) throws IOException {
+			while (buffer.hasRemaining()) {
+				position += fc.write(buffer, position);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				fc.force(true);
+			} finally {
+				raf.close();
+			}
+		}
+	}
+}
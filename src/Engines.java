@@ -0,0 +1,708 @@
+/**
+ * The shortest path engines of this project as Selector engines, with the
+ * work each is expected to do and its calibration prior.
+ *
+ * Single source engines answer every shape: a source (or the source of a
+ * pair) gets a full search. The sequential ones search different sources on
+ * different threads, the parallel ones use every thread on each source. The
+ * point to point engines build an index once per graph and keep it for the
+ * next queries on the same graph. Many to many engines share work between
+ * the sources: the bit-parallel BFS and Johnson's reweighting.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.Graph;
+import graph.GraphProfile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class Engines {
+	// entries of one multi-source BFS batch, bounds its distance rows
+	private static final int MSBFS_BATCH_ENTRIES = 1 << 24;
+
+	/**
+	 * every engine of this project, in registration order
+	 *
+	 * @return : List<Selector.Engine> - new engine instances
+	 */
+	static List<Selector.Engine> all() {
+		List<Selector.Engine> ret = new ArrayList<Selector.Engine>();
+		ret.add(new PerSource("bfs", false) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return p.isUniform()
+						&& p.isNonNegative(zeroCycleSensitive);
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return p.numNodes + p.numEdges;
+			}
+
+			@Override
+			Kernel kernel(final CSRGraph g, ExecutorService pool) {
+				return new Kernel() {
+					@Override
+					public boolean solve(int s, boolean zeroCycleSensitive,
+							SearchState st) {
+						ShortestPath.sp_bfs(g, s, st);
+						return true;
+					}
+				};
+			}
+		});
+		ret.add(new PerSource("parallel-bfs", true) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return p.isUniform()
+						&& p.isNonNegative(zeroCycleSensitive);
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return (double) (p.numNodes + p.numEdges) / threads;
+			}
+
+			@Override
+			Kernel kernel(CSRGraph g, ExecutorService pool) {
+				final ParallelBFS bfs = new ParallelBFS(g, pool);
+				return new Kernel() {
+					@Override
+					public boolean solve(int s, boolean zeroCycleSensitive,
+							SearchState st) {
+						bfs.run(s, st);
+						return true;
+					}
+				};
+			}
+		});
+		ret.add(new PerSource("dag", false) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return p.isAcyclic();
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return p.numNodes + p.numEdges;
+			}
+
+			@Override
+			Kernel kernel(final CSRGraph g, ExecutorService pool) {
+				return new Kernel() {
+					@Override
+					public boolean solve(int s, boolean zeroCycleSensitive,
+							SearchState st) {
+						ShortestPath.sp_dag(g, s, zeroCycleSensitive, st);
+						return true;
+					}
+				};
+			}
+		});
+		ret.add(new PerSource("dijkstra", false) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return p.isNonNegative(zeroCycleSensitive);
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return p.numEdges + p.numNodes * log2(p.numNodes);
+			}
+
+			@Override
+			Kernel kernel(final CSRGraph g, ExecutorService pool) {
+				return queueKernel(g, DEF.QUEUE_BINARY);
+			}
+		});
+		ret.add(new PerSource("dial", false) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return p.isNonNegative(zeroCycleSensitive)
+						&& p.maxWeight <= DEF.DIAL_WEIGHT_CUT_OFF;
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return p.numEdges + p.numNodes + p.maxWeight;
+			}
+
+			@Override
+			Kernel kernel(final CSRGraph g, ExecutorService pool) {
+				return queueKernel(g, DEF.QUEUE_DIAL);
+			}
+		});
+		ret.add(new PerSource("radix", false) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return p.isNonNegative(zeroCycleSensitive);
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return p.numEdges + p.numNodes * log2(p.maxWeight);
+			}
+
+			@Override
+			Kernel kernel(final CSRGraph g, ExecutorService pool) {
+				return queueKernel(g, DEF.QUEUE_RADIX);
+			}
+		});
+		ret.add(new PerSource("delta-stepping", true) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return p.isNonNegative(zeroCycleSensitive);
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return (double) (p.numNodes + p.numEdges) / threads;
+			}
+
+			@Override
+			Kernel kernel(CSRGraph g, ExecutorService pool) {
+				final DeltaStepping ds = new DeltaStepping(g,
+						DeltaStepping.autoDelta(g), pool);
+				return new Kernel() {
+					@Override
+					public boolean solve(int s, boolean zeroCycleSensitive,
+							SearchState st) {
+						ds.run(s, st);
+						return true;
+					}
+				};
+			}
+		});
+		// a queue based Bellman-Ford pays a queue operation and an arc scan
+		// per improvement of a vertex, about log n of them. A sweep scans
+		// the same arcs faster from its flat arrays but checks every tail
+		// in each pass, and sparse graphs need more passes, so sweeps win
+		// once the average degree is high
+		ret.add(new PerSource("bellman-ford", false) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return true;
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return log2(p.numNodes) * (p.numEdges + p.numNodes);
+			}
+
+			@Override
+			Kernel kernel(final CSRGraph g, ExecutorService pool) {
+				return new Kernel() {
+					@Override
+					public boolean solve(int s, boolean zeroCycleSensitive,
+							SearchState st) {
+						return ShortestPath.sp_bf(g, s, zeroCycleSensitive, st);
+					}
+				};
+			}
+		});
+		ret.add(new PerSource("bellman-ford-sweep", false) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return true;
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				double passes = 32 * log2(p.numNodes)
+						/ (p.averageDegree() + 1);
+				return log2(p.numNodes) * p.numEdges / 2 + passes * p.numNodes;
+			}
+
+			@Override
+			Kernel kernel(final CSRGraph g, ExecutorService pool) {
+				return new Kernel() {
+					@Override
+					public boolean solve(int s, boolean zeroCycleSensitive,
+							SearchState st) {
+						return ShortestPath.sp_bf_sweep(g, s,
+								zeroCycleSensitive, st);
+					}
+				};
+			}
+		});
+		ret.add(new PerSource("parallel-bellman-ford", true) {
+			@Override
+			boolean accepts(GraphProfile p, boolean zeroCycleSensitive) {
+				return true;
+			}
+
+			@Override
+			double sourceWork(GraphProfile p, int threads) {
+				return log2(p.numNodes) * (p.numEdges + p.numNodes) / threads;
+			}
+
+			@Override
+			Kernel kernel(CSRGraph g, ExecutorService pool) {
+				final ParallelBellmanFord bf = new ParallelBellmanFord(g, pool);
+				return new Kernel() {
+					@Override
+					public boolean solve(int s, boolean zeroCycleSensitive,
+							SearchState st) {
+						return bf.run(s, zeroCycleSensitive, st);
+					}
+				};
+			}
+		});
+		ret.add(new MultiSource());
+		ret.add(new JohnsonEngine());
+		ret.add(new Indexed<Void>("bidirectional-dijkstra") {
+			@Override
+			double buildWork(GraphProfile p, int threads) {
+				return 0;
+			}
+
+			@Override
+			double pairWork(GraphProfile p, Void index) {
+				return (p.numEdges + p.numNodes * log2(p.numNodes)) / 2;
+			}
+
+			@Override
+			Void build(CSRGraph g, Graph graph, int threads) {
+				return null;
+			}
+
+			@Override
+			long distance(Void index, Graph graph, int s, int t,
+					SearchState fwd, SearchState bwd) {
+				return PointToPoint.bidirectionalDijkstra(graph,
+						graph.verts.get(s), graph.verts.get(t), fwd, bwd).distance;
+			}
+		});
+		ret.add(new Indexed<ALT>("alt") {
+			@Override
+			double buildWork(GraphProfile p, int threads) {
+				// landmark selection, then a search to and from each
+				return 3.0 * DEF.ALT_LANDMARKS
+						* (p.numEdges + p.numNodes * log2(p.numNodes)) / threads;
+			}
+
+			@Override
+			double pairWork(GraphProfile p, ALT index) {
+				return (p.numEdges + p.numNodes * log2(p.numNodes)) / 8;
+			}
+
+			@Override
+			ALT build(CSRGraph g, Graph graph, int threads) {
+				return ALT.build(g, ALT.selectLandmarks(g, DEF.ALT_LANDMARKS,
+						DEF.LANDMARK_AVOID, 1), threads);
+			}
+
+			@Override
+			long distance(ALT index, Graph graph, int s, int t,
+					SearchState fwd, SearchState bwd) {
+				return index.query(graph, graph.verts.get(s),
+						graph.verts.get(t), fwd).distance;
+			}
+		});
+		ret.add(new Indexed<ContractionHierarchy>("contraction-hierarchy") {
+			@Override
+			double buildWork(GraphProfile p, int threads) {
+				return (double) (p.numNodes + p.numEdges)
+						* DEF.CH_WITNESS_SETTLE_LIMIT * log2(p.numNodes)
+						/ threads;
+			}
+
+			@Override
+			double pairWork(GraphProfile p, ContractionHierarchy index) {
+				return 1.5 * Math.sqrt(p.numNodes) * log2(p.numNodes);
+			}
+
+			@Override
+			ContractionHierarchy build(CSRGraph g, Graph graph, int threads) {
+				return ContractionHierarchy.build(graph, threads);
+			}
+
+			@Override
+			long distance(ContractionHierarchy index, Graph graph, int s,
+					int t, SearchState fwd, SearchState bwd) {
+				return index.query(graph.verts.get(s), graph.verts.get(t),
+						fwd, bwd).distance;
+			}
+		});
+		ret.add(new Indexed<HubLabels>("hub-labels") {
+			@Override
+			double buildWork(GraphProfile p, int threads) {
+				// a pruned search per vertex, growing a label of each visit
+				return p.numNodes * labelSize(p, null)
+						* (p.averageDegree() + 1) * log2(p.numNodes);
+			}
+
+			@Override
+			double pairWork(GraphProfile p, HubLabels index) {
+				// a merge of two labels costs far less than a search step
+				return labelSize(p, index) / 4;
+			}
+
+			/** measured once built, guessed from the graph size before */
+			private double labelSize(GraphProfile p, HubLabels index) {
+				return index != null ? index.averageLabelSize() : Math.min(
+						p.numNodes, 16 * Math.sqrt(p.numNodes));
+			}
+
+			@Override
+			HubLabels build(CSRGraph g, Graph graph, int threads) {
+				return HubLabels.build(g, HubLabels.orderByDegree(g));
+			}
+
+			@Override
+			long distance(HubLabels index, Graph graph, int s, int t,
+					SearchState fwd, SearchState bwd) {
+				return index.distance(s, t);
+			}
+		});
+		return ret;
+	}
+
+	/**
+	 * nanoseconds per unit of work of an engine before any calibration,
+	 * measured on one core
+	 *
+	 * @param name
+	 *            : String - engine name
+	 * @return : double - calibration prior
+	 */
+	static double prior(String name) {
+		if (name.equals("dag")) {
+			return 25;
+		} else if (name.equals("bfs")) {
+			return 40;
+		} else if (name.equals("radix")) {
+			return 40;
+		} else if (name.equals("dijkstra")) {
+			return 50;
+		} else if (name.equals("johnson")) {
+			return 30;
+		} else if (name.equals("parallel-bfs")) {
+			return 100;
+		} else if (name.equals("dial")) {
+			return 110;
+		} else if (name.equals("multi-source-bfs")) {
+			return 180;
+		} else if (name.equals("delta-stepping")) {
+			return 300;
+		} else if (name.equals("bellman-ford")
+				|| name.equals("parallel-bellman-ford")) {
+			return 12;
+		} else if (name.equals("bellman-ford-sweep")) {
+			return 8;
+		} else if (name.equals("bidirectional-dijkstra")) {
+			return 100;
+		} else if (name.equals("alt")) {
+			return 150;
+		} else if (name.equals("hub-labels")) {
+			return 200;
+		} else if (name.equals("contraction-hierarchy")) {
+			return 450;
+		}
+		return 50; // an engine of unknown speed, calibrate it
+	}
+
+	private static double log2(int x) {
+		return Math.log(x + 2.0) / Math.log(2);
+	}
+
+	/**
+	 * Dijkstra over a DEF.QUEUE_* priority queue, a new queue per source
+	 */
+	private static Kernel queueKernel(final CSRGraph g, final int queueType) {
+		final int maxWeight = Math.max(0, g.profile().maxWeight);
+		return new Kernel() {
+			@Override
+			public boolean solve(int s, boolean zeroCycleSensitive,
+					SearchState st) {
+				ShortestPath.sp_dijkstra(g, s, zeroCycleSensitive, st,
+						ShortestPath.createQueue(queueType, g.numNodes,
+								maxWeight));
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * single source search of a PerSource engine
+	 */
+	interface Kernel {
+		/**
+		 * search from s, safe to call from several threads with different
+		 * states unless the engine is a parallel one
+		 *
+		 * @return : boolean - false if a negative (or non-positive) cycle was
+		 *         found
+		 */
+		boolean solve(int s, boolean zeroCycleSensitive, SearchState st);
+	}
+
+	/**
+	 * engine running one single source search per source (or pair)
+	 */
+	abstract static class PerSource implements Selector.Engine {
+		private final String name;
+		private final boolean parallel; // true if a search uses every thread
+
+		PerSource(String name, boolean parallel) {
+			this.name = name;
+			this.parallel = parallel;
+		}
+
+		@Override
+		public String name() {
+			return name;
+		}
+
+		@Override
+		public boolean accepts(GraphProfile p, int shape,
+				boolean zeroCycleSensitive) {
+			return accepts(p, zeroCycleSensitive);
+		}
+
+		@Override
+		public double work(CSRGraph g, GraphProfile p, int shape,
+				int queries, int threads) {
+			int lanes = parallel ? 1 : Math.max(1, Math.min(threads, queries));
+			return sourceWork(p, threads) * Math.ceil((double) queries / lanes);
+		}
+
+		@Override
+		public boolean run(final CSRGraph g, final Selector.Query q,
+				ExecutorService pool, int threads) throws IOException {
+			final Kernel kernel = kernel(g, pool);
+			final AtomicBoolean cycle = new AtomicBoolean();
+			int lanes = parallel ? 1 : Math.max(1, Math.min(threads, q.size()));
+			final SearchStatePool states = new SearchStatePool(g.numNodes);
+			forEach(pool, lanes, q.size(), states, new Workers.LaneFactory() {
+				@Override
+				public Workers.Lane create() {
+					final int[] row = new int[g.numNodes + 1];
+					return new Workers.Lane() {
+						@Override
+						public boolean item(int i, SearchState st)
+								throws IOException {
+							if (!kernel.solve(q.sources[i],
+									q.zeroCycleSensitive, st)) {
+								cycle.set(true);
+								return false;
+							}
+							for (int v = 1; v <= g.numNodes; v++) {
+								row[v] = st.getDistance(v);
+							}
+							q.answer(i, row);
+							return true;
+						}
+					};
+				}
+			});
+			return !cycle.get();
+		}
+
+		abstract boolean accepts(GraphProfile p, boolean zeroCycleSensitive);
+
+		/** work of the search from one source */
+		abstract double sourceWork(GraphProfile p, int threads);
+
+		/** search of this engine for one batch of queries on g */
+		abstract Kernel kernel(CSRGraph g, ExecutorService pool);
+	}
+
+	/**
+	 * bit-parallel BFS sharing each arc scan between the sources of a batch
+	 */
+	static class MultiSource implements Selector.Engine {
+		@Override
+		public String name() {
+			return "multi-source-bfs";
+		}
+
+		@Override
+		public boolean accepts(GraphProfile p, int shape,
+				boolean zeroCycleSensitive) {
+			return shape != DEF.QUERY_SINGLE_SOURCE && p.isUniform()
+					&& p.isNonNegative(zeroCycleSensitive);
+		}
+
+		@Override
+		public double work(CSRGraph g, GraphProfile p, int shape,
+				int queries, int threads) {
+			// one scan of the graph per 64 sources, per word of each vertex
+			return (double) (p.numNodes + p.numEdges)
+					* Math.ceil(queries / 64.0);
+		}
+
+		@Override
+		public boolean run(CSRGraph g, Selector.Query q, ExecutorService pool,
+				int threads) throws IOException {
+			int batch = batch(g.numNodes);
+			MultiSourceBFS bfs = new MultiSourceBFS(g, batch / 64);
+			for (int base = 0; base < q.size(); base += batch) {
+				int k = Math.min(batch, q.size() - base);
+				int[] sources = new int[k];
+				System.arraycopy(q.sources, base, sources, 0, k);
+				int[][] rows = bfs.distanceMatrix(sources);
+				for (int i = 0; i < k; i++) {
+					q.answer(base + i, rows[i]);
+				}
+			}
+			return true;
+		}
+
+		/** sources per pass, as many as the words allow while the rows fit */
+		private static int batch(int n) {
+			int words = Math.min(DEF.MSBFS_WORDS, MSBFS_BATCH_ENTRIES
+					/ (64 * (n + 1)));
+			return 64 * Math.max(1, words);
+		}
+	}
+
+	/**
+	 * Johnson's algorithm, one Bellman-Ford shared by every source
+	 */
+	static class JohnsonEngine implements Selector.Engine {
+		@Override
+		public String name() {
+			return "johnson";
+		}
+
+		@Override
+		public boolean accepts(GraphProfile p, int shape,
+				boolean zeroCycleSensitive) {
+			// the potentials come from a run that lets zero cycles pass
+			return shape != DEF.QUERY_SINGLE_SOURCE && !zeroCycleSensitive;
+		}
+
+		@Override
+		public double work(CSRGraph g, GraphProfile p, int shape,
+				int queries, int threads) {
+			double dijkstra = p.numEdges + p.numNodes * log2(p.numNodes);
+			double potentials = log2(p.numNodes)
+					* (p.numEdges + 4.0 * p.numNodes);
+			return potentials + dijkstra
+					* Math.ceil((double) queries
+							/ Math.max(1, Math.min(threads, queries)));
+		}
+
+		@Override
+		public boolean run(CSRGraph g, final Selector.Query q,
+				ExecutorService pool, int threads) throws IOException {
+			Johnson johnson;
+			try {
+				johnson = new Johnson(g);
+			} catch (IllegalArgumentException e) {
+				return false; // negative cycle
+			}
+			johnson.run(q.sources, threads, new Johnson.RowSink() {
+				@Override
+				public void row(int index, int source, int[] distance)
+						throws IOException {
+					q.answer(index, distance);
+				}
+			});
+			return true;
+		}
+	}
+
+	/**
+	 * point to point engine over an index built once per graph
+	 *
+	 * @param <I>
+	 *            type of the index
+	 */
+	abstract static class Indexed<I> implements Selector.Engine {
+		private final String name;
+		// index of the last graph, kept for the next queries on it
+		private CSRGraph indexed;
+		private Graph graph;
+		private I index;
+
+		Indexed(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String name() {
+			return name;
+		}
+
+		@Override
+		public boolean accepts(GraphProfile p, int shape,
+				boolean zeroCycleSensitive) {
+			return shape == DEF.QUERY_POINT_TO_POINT
+					&& p.isNonNegative(zeroCycleSensitive);
+		}
+
+		@Override
+		public synchronized double work(CSRGraph g, GraphProfile p,
+				int shape, int queries, int threads) {
+			boolean built = indexed == g;
+			double setup = built ? 0 : buildWork(p, threads) + p.numNodes
+					+ p.numEdges;
+			return setup + queries * pairWork(p, built ? index : null);
+		}
+
+		@Override
+		public synchronized boolean run(CSRGraph g, Selector.Query q,
+				ExecutorService pool, int threads) {
+			if (indexed != g) {
+				// the object graph serves the engines written against it
+				index = null;
+				graph = g.toGraph();
+				index = build(g, graph, threads);
+				indexed = g;
+			}
+			SearchState fwd = new SearchState(g.numNodes);
+			SearchState bwd = new SearchState(g.numNodes);
+			for (int i = 0; i < q.size(); i++) {
+				long d = distance(index, graph, q.sources[i], q.targets[i],
+						fwd, bwd);
+				q.distance[i] = (int) Math.min(d, SearchState.INFINITY);
+			}
+			return true;
+		}
+
+		/** work of building the index */
+		abstract double buildWork(GraphProfile p, int threads);
+
+		/**
+		 * work of one pair
+		 *
+		 * @param index
+		 *            : I - the index if it is built, null otherwise
+		 */
+		abstract double pairWork(GraphProfile p, I index);
+
+		abstract I build(CSRGraph g, Graph graph, int threads);
+
+		/** distance from s to t, SearchState.INFINITY if unreachable */
+		abstract long distance(I index, Graph graph, int s, int t,
+				SearchState fwd, SearchState bwd);
+	}
+
+	/**
+	 * process the sources of a query on some lanes, see Workers.forEach
+	 */
+	private static void forEach(ExecutorService pool, int lanes, int items,
+			SearchStatePool states, Workers.LaneFactory factory)
+			throws IOException {
+		try {
+			Workers.forEach(pool, lanes, items, states, factory);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Engine interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Engine failed", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,464 @@
+/**
+ * Hub labeling (2-hop cover) index for exact distance lookups on graphs with
+ * non-negative edge weights. Every vertex v keeps an out label, hubs h with
+ * d(v, h), and an in label, hubs h with d(h, v). Every shortest s-t path
+ * passes a hub common to the out label of s and the in label of t, so a query
+ * only merges two sorted arrays.
+ *
+ * Labels are built by pruned landmark labeling: vertices are processed in a
+ * given order, from each one a forward and a backward Dijkstra add it as a hub
+ * to the labels they reach, and stop at vertices whose distance the labels
+ * built so far already give. Hubs are stored by their position in the order,
+ * so labels come out sorted. All labels live in flat int arrays.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.EdgeListReader;
+import graph.Graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import pq.IntIndexedHeap;
+
+public class HubLabels {
+	public static final int MAGIC = 0x48554231; // "HUB1" in big endian
+	public static final int VERSION = 1;
+
+	public final int numNodes; // number of vertices of the indexed graph
+	private final int[] order; // vertex name of each hub id
+	// out label of v: hubs outHub[outStart[v] .. outStart[v + 1]) sorted by
+	// hub id, with d(v, hub) in outDist
+	private final int[] outStart;
+	private final int[] outHub;
+	private final int[] outDist;
+	// in label of v: hubs with d(hub, v)
+	private final int[] inStart;
+	private final int[] inHub;
+	private final int[] inDist;
+
+	/**
+	 * Constructor for HubLabels, arrays are used as is without copy
+	 */
+	private HubLabels(int n, int[] order, int[] outStart, int[] outHub,
+			int[] outDist, int[] inStart, int[] inHub, int[] inDist) {
+		this.numNodes = n;
+		this.order = order;
+		this.outStart = outStart;
+		this.outHub = outHub;
+		this.outDist = outDist;
+		this.inStart = inStart;
+		this.inHub = inHub;
+		this.inDist = inDist;
+	}
+
+	/**
+	 * build labels with vertices ordered by decreasing degree
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative weight edge
+	 * @return : HubLabels - the index
+	 */
+	public static HubLabels build(Graph g) {
+		CSRGraph csr = CSRGraph.fromGraph(g);
+		return build(csr, orderByDegree(csr));
+	}
+
+	/**
+	 * vertices sorted by decreasing total degree, ties by name
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @return : int[] - vertex names, most important first
+	 */
+	public static int[] orderByDegree(CSRGraph g) {
+		int n = g.numNodes;
+		// counting sort on degree, largest first
+		int maxDegree = 0;
+		for (int v = 1; v <= n; v++) {
+			maxDegree = Math.max(maxDegree, g.outDegree(v) + g.inDegree(v));
+		}
+		int[] start = new int[maxDegree + 2];
+		for (int v = 1; v <= n; v++) {
+			start[maxDegree - g.outDegree(v) - g.inDegree(v) + 1]++;
+		}
+		for (int d = 1; d <= maxDegree + 1; d++) {
+			start[d] += start[d - 1];
+		}
+		int[] ret = new int[n];
+		for (int v = 1; v <= n; v++) {
+			ret[start[maxDegree - g.outDegree(v) - g.inDegree(v)]++] = v;
+		}
+		return ret;
+	}
+
+	/**
+	 * vertices sorted by decreasing contraction rank, the order in which a
+	 * contraction hierarchy would visit them last. Usually gives much smaller
+	 * labels than the degree order on road like graphs.
+	 *
+	 * @param ch
+	 *            : ContractionHierarchy - hierarchy of the graph
+	 * @return : int[] - vertex names, most important first
+	 */
+	public static int[] orderByRank(ContractionHierarchy ch) {
+		int n = ch.numNodes;
+		int[] ret = new int[n];
+		for (int v = 1; v <= n; v++) {
+			ret[n - 1 - ch.getRank(v)] = v;
+		}
+		return ret;
+	}
+
+	/**
+	 * build labels by pruned landmark labeling in a given vertex order, for
+	 * example the reverse contraction order of a ContractionHierarchy
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with only non-negative weight edge
+	 * @param order
+	 *            : int[] - every vertex name once, most important first
+	 * @return : HubLabels - the index
+	 */
+	public static HubLabels build(CSRGraph g, int[] order) {
+		int n = g.numNodes;
+		CSRGraph reverse = g.reverse();
+		SearchState st = new SearchState(n);
+		IntIndexedHeap pq = new IntIndexedHeap(n);
+		// labels under construction, growing per vertex
+		int[][] outLabel = new int[n + 1][];
+		int[] outSize = new int[n + 1];
+		int[][] inLabel = new int[n + 1][];
+		int[] inSize = new int[n + 1];
+		for (int v = 1; v <= n; v++) {
+			outLabel[v] = new int[4];
+			inLabel[v] = new int[4];
+		}
+		// distance between the running hub and each hub id, from its label
+		int[] hubDist = new int[n];
+		Arrays.fill(hubDist, SearchState.INFINITY);
+
+		for (int id = 0; id < n; id++) {
+			int h = order[id];
+			// forward search fills in labels, pruned by out label of h
+			prunedSearch(g, h, id, outLabel[h], outSize[h], inLabel, inSize,
+					hubDist, st, pq);
+			// backward search fills out labels, pruned by in label of h
+			prunedSearch(reverse, h, id, inLabel[h], inSize[h], outLabel,
+					outSize, hubDist, st, pq);
+		}
+
+		int[] outStart = new int[n + 2];
+		int[] inStart = new int[n + 2];
+		for (int v = 1; v <= n; v++) {
+			outStart[v + 1] = outStart[v] + outSize[v] / 2;
+			inStart[v + 1] = inStart[v] + inSize[v] / 2;
+		}
+		int[] outHub = new int[outStart[n + 1]];
+		int[] outDist = new int[outStart[n + 1]];
+		int[] inHub = new int[inStart[n + 1]];
+		int[] inDist = new int[inStart[n + 1]];
+		for (int v = 1; v <= n; v++) {
+			for (int i = 0; i < outSize[v]; i += 2) {
+				outHub[outStart[v] + i / 2] = outLabel[v][i];
+				outDist[outStart[v] + i / 2] = outLabel[v][i + 1];
+			}
+			for (int i = 0; i < inSize[v]; i += 2) {
+				inHub[inStart[v] + i / 2] = inLabel[v][i];
+				inDist[inStart[v] + i / 2] = inLabel[v][i + 1];
+			}
+			outLabel[v] = null;
+			inLabel[v] = null;
+		}
+		return new HubLabels(n, order.clone(), outStart, outHub, outDist,
+				inStart, inHub, inDist);
+	}
+
+	/**
+	 * Dijkstra from hub h that adds (id, distance) to the label of each
+	 * vertex it settles, unless the labels already give that distance; in
+	 * that case the vertex is not expanded either
+	 *
+	 * @param g
+	 *            : CSRGraph - graph to search, reversed for the backward pass
+	 * @param h
+	 *            : int - hub vertex
+	 * @param id
+	 *            : int - hub id of h
+	 * @param own
+	 *            : int[] - label of h on the other side, (hub, distance) pairs
+	 * @param ownSize
+	 *            : int - used length of own
+	 * @param labels
+	 *            : int[][] - labels filled by this search
+	 * @param sizes
+	 *            : int[] - used length of each label
+	 * @param hubDist
+	 *            : int[] - scratch, all INFINITY, left that way
+	 * @param st
+	 *            : SearchState - scratch search data
+	 * @param pq
+	 *            : IntIndexedHeap - empty scratch queue, left empty
+	 */
+	private static void prunedSearch(CSRGraph g, int h, int id, int[] own,
+			int ownSize, int[][] labels, int[] sizes, int[] hubDist,
+			SearchState st, IntIndexedHeap pq) {
+		for (int i = 0; i < ownSize; i += 2) {
+			hubDist[own[i]] = own[i + 1];
+		}
+		st.reset();
+		st.setDistance(h, 0);
+		pq.insert(h, 0);
+		while (!pq.isEmpty()) {
+			int v = pq.deleteMin();
+			int dv = st.getDistance(v);
+			// distance between h and v through hubs processed so far
+			long known = SearchState.INFINITY;
+			int[] label = labels[v];
+			for (int i = 0; i < sizes[v]; i += 2) {
+				if (hubDist[label[i]] != SearchState.INFINITY) {
+					known = Math.min(known, (long) hubDist[label[i]]
+							+ label[i + 1]);
+				}
+			}
+			if (known <= dv) {
+				continue; // pruned
+			}
+			if (sizes[v] == label.length) {
+				labels[v] = label = Arrays.copyOf(label, 2 * label.length);
+			}
+			label[sizes[v]++] = id;
+			label[sizes[v]++] = dv;
+
+			for (int a = g.outBegin(v); a < g.outEnd(v); a++) {
+				int w = g.arcHead(a);
+				int temp = dv + g.arcWeight(a);
+				if (temp < st.getDistance(w)) {
+					st.setDistance(w, temp);
+					if (pq.contains(w)) {
+						pq.decreaseKey(w, temp);
+					} else {
+						pq.insert(w, temp);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < ownSize; i += 2) {
+			hubDist[own[i]] = SearchState.INFINITY;
+		}
+	}
+
+	/**
+	 * distance query, merges the out label of s with the in label of t
+	 *
+	 * @param s
+	 *            : int - source vertex
+	 * @param t
+	 *            : int - target vertex
+	 * @return : int - d(s, t), SearchState.INFINITY if t is not reachable
+	 */
+	public int distance(int s, int t) {
+		if (s == t) {
+			return 0;
+		}
+		long ret = SearchState.INFINITY;
+		int i = outStart[s];
+		int iEnd = outStart[s + 1];
+		int j = inStart[t];
+		int jEnd = inStart[t + 1];
+		while (i < iEnd && j < jEnd) {
+			int a = outHub[i];
+			int b = inHub[j];
+			if (a == b) {
+				ret = Math.min(ret, (long) outDist[i++] + inDist[j++]);
+			} else if (a < b) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return (int) ret;
+	}
+
+	/**
+	 * highest ranked hub on a shortest path from s to t
+	 *
+	 * @param s
+	 *            : int - source vertex
+	 * @param t
+	 *            : int - target vertex
+	 * @return : int - vertex name of the hub, 0 if t is not reachable
+	 */
+	public int hub(int s, int t) {
+		long best = SearchState.INFINITY;
+		int ret = 0;
+		int i = outStart[s];
+		int j = inStart[t];
+		while (i < outStart[s + 1] && j < inStart[t + 1]) {
+			int a = outHub[i];
+			int b = inHub[j];
+			if (a == b) {
+				if ((long) outDist[i] + inDist[j] < best) {
+					best = (long) outDist[i] + inDist[j];
+					ret = order[a];
+				}
+				i++;
+				j++;
+			} else if (a < b) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return ret;
+	}
+
+	/** average number of hubs per vertex, out and in labels together */
+	public double averageLabelSize() {
+		return (double) (outHub.length + inHub.length) / numNodes;
+	}
+
+	/**
+	 * Approximate footprint of the labels in bytes
+	 *
+	 * @return : long - bytes used by the index
+	 */
+	public long memoryBytes() {
+		return 4L * (order.length + outStart.length + inStart.length + 2L
+				* outHub.length + 2L * inHub.length);
+	}
+
+	/** Approximate footprint of the labels per vertex in bytes */
+	public double memoryBytesPerVertex() {
+		return (double) memoryBytes() / numNodes;
+	}
+
+	/**
+	 * Write the index to a file, replacing any existing content. The file
+	 * holds magic, version, number of vertices, number of out and in entries,
+	 * then the order and the label arrays as big endian 32 bit integers.
+	 *
+	 * @param file
+	 *            : File - index file
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(numNodes);
+			out.writeInt(outHub.length);
+			out.writeInt(inHub.length);
+			for (int[] a : new int[][] { order, outStart, outHub, outDist,
+					inStart, inHub, inDist }) {
+				for (int x : a) {
+					out.writeInt(x);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read an index written by save()
+	 *
+	 * @param file
+	 *            : File - index file
+	 * @return : HubLabels - the index
+	 * @throws IOException
+	 *             if the file is not an index of this version
+	 */
+	public static HubLabels load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a hub label index: " + file);
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported hub label index version "
+						+ version);
+			}
+			int n = in.readInt();
+			int outs = in.readInt();
+			int ins = in.readInt();
+			int[][] a = { new int[n], new int[n + 2], new int[outs],
+					new int[outs], new int[n + 2], new int[ins], new int[ins] };
+			for (int[] section : a) {
+				for (int i = 0; i < section.length; i++) {
+					section[i] = in.readInt();
+				}
+			}
+			return new HubLabels(n, a[0], a[1], a[2], a[3], a[4], a[5], a[6]);
+		}
+	}
+
+	/**
+	 * Driver function building the labels of a graph and timing random
+	 * distance queries against Dijkstra
+	 *
+	 * @param args
+	 *            argument - input graph file, optional order (degree or ch)
+	 *            and optional index file to write
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java HubLabels <graph file> [degree|ch] [index file]");
+			return;
+		}
+		Graph g = EdgeListReader.readGraph(new File(args[0]), true);
+
+		long start = System.nanoTime();
+		CSRGraph csr = CSRGraph.fromGraph(g);
+		int[] order;
+		if (args.length > 1 && args[1].equals("ch")) {
+			order = orderByRank(ContractionHierarchy.build(g, Runtime
+					.getRuntime().availableProcessors()));
+		} else {
+			order = orderByDegree(csr);
+		}
+		HubLabels labels = build(csr, order);
+		System.out.println("Preprocessing: " + (System.nanoTime() - start)
+				/ 1000000 + " ms, " + labels.averageLabelSize()
+				+ " hubs and " + (long) labels.memoryBytesPerVertex()
+				+ " bytes per vertex");
+		if (args.length > 2) {
+			labels.save(new File(args[2]));
+		}
+
+		Random random = new Random(2);
+		SearchState st = new SearchState(g.numNodes);
+		int queries = 1000000;
+		int[] s = new int[queries];
+		int[] t = new int[queries];
+		for (int q = 0; q < queries; q++) {
+			s[q] = 1 + random.nextInt(g.numNodes);
+			t[q] = 1 + random.nextInt(g.numNodes);
+		}
+		start = System.nanoTime();
+		long checksum = 0;
+		for (int q = 0; q < queries; q++) {
+			checksum += labels.distance(s[q], t[q]);
+		}
+		System.out.println("Query: " + (System.nanoTime() - start) / queries
+				+ " ns (checksum " + checksum + ")");
+
+		for (int q = 0; q < 10; q++) {
+			ShortestPath.sp_dijkstra(csr, s[q], false, st);
+			if (st.getDistance(t[q]) != labels.distance(s[q], t[q])) {
+				System.out.println("Mismatch for " + s[q] + " -> " + t[q]);
+			}
+		}
+	}
+}
@@ -0,0 +1,247 @@
+/**
+ * Johnson's algorithm for distances from many sources on a graph with
+ * negative weight edges (but no negative cycle). One Bellman-Ford run from a
+ * virtual source joined to every vertex by a zero weight arc gives a
+ * potential h(v) with w(u, v) + h(u) - h(v) >= 0 for every arc. Dijkstra on
+ * these reweighted arcs then runs from each source in parallel, and the
+ * distance of the original graph is recovered as d'(s, v) - h(s) + h(v).
+ *
+ * Rows go to a RowSink as they are finished: a DistanceMatrix in memory, or a
+ * DistanceMatrix.FileSink when the matrix is too large to hold.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.EdgeListReader;
+import graph.GraphSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import pq.IntIndexedHeap;
+
+public class Johnson {
+	/**
+	 * receives the distances from one source
+	 */
+	public interface RowSink {
+		/**
+		 * called once per source, from the worker threads and in any order
+		 *
+		 * @param index
+		 *            : int - index of the source in the sources array
+		 * @param source
+		 *            : int - source vertex
+		 * @param distance
+		 *            : int[] - distance of each vertex 1..n, reused for the
+		 *            next row once the call returns
+		 * @throws IOException
+		 */
+		void row(int index, int source, int[] distance) throws IOException;
+	}
+
+	public final int numNodes;
+	private final int[] potential; // h(v), distance from the virtual source
+	private final CSRGraph reweighted;
+
+	/**
+	 * Constructor for Johnson, computes the potentials and reweights the arcs
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @throws IllegalArgumentException
+	 *             if the graph has a negative cycle
+	 */
+	public Johnson(CSRGraph g) {
+		int n = g.numNodes;
+		int m = g.numEdges;
+		numNodes = n;
+
+		// virtual source n + 1 with a zero weight arc to every vertex
+		int[] from = new int[m + n];
+		int[] to = new int[m + n];
+		int[] weight = new int[m + n];
+		for (int u = 1; u <= n; u++) {
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				from[a] = u;
+				to[a] = g.arcHead(a);
+				weight[a] = g.arcWeight(a);
+			}
+			from[m + u - 1] = n + 1;
+			to[m + u - 1] = u;
+		}
+		SearchState st = new SearchState(n + 1);
+		if (!ShortestPath.sp_bf(CSRGraph.fromEdges(n + 1, from, to, weight),
+				n + 1, false, st)) {
+			throw new IllegalArgumentException(DEF.ERROR_LEVEL1);
+		}
+		potential = new int[n + 1];
+		for (int v = 1; v <= n; v++) {
+			potential[v] = st.getDistance(v);
+		}
+
+		for (int a = 0; a < m; a++) {
+			weight[a] += potential[from[a]] - potential[to[a]];
+		}
+		reweighted = CSRGraph.fromEdges(n, trim(from, m), trim(to, m),
+				trim(weight, m));
+	}
+
+	/** potential of v, its distance from the virtual source */
+	public int potential(int v) {
+		return potential[v];
+	}
+
+	/**
+	 * distances from every vertex to every vertex
+	 *
+	 * @param threads
+	 *            : int - number of worker threads
+	 * @param offHeap
+	 *            : boolean - true to keep the matrix in direct buffers
+	 * @return : DistanceMatrix - row v - 1 holds the distances from v
+	 */
+	public DistanceMatrix allPairs(int threads, boolean offHeap) {
+		int[] sources = new int[numNodes];
+		for (int v = 1; v <= numNodes; v++) {
+			sources[v - 1] = v;
+		}
+		return distances(sources, threads, offHeap);
+	}
+
+	/**
+	 * distances from some sources to every vertex
+	 *
+	 * @param sources
+	 *            : int[] - source vertices
+	 * @param threads
+	 *            : int - number of worker threads
+	 * @param offHeap
+	 *            : boolean - true to keep the matrix in direct buffers
+	 * @return : DistanceMatrix - row i holds the distances from sources[i]
+	 */
+	public DistanceMatrix distances(int[] sources, int threads,
+			boolean offHeap) {
+		DistanceMatrix matrix = new DistanceMatrix(sources, numNodes, offHeap);
+		try {
+			run(sources, threads, matrix);
+		} catch (IOException e) {
+			// an in memory matrix does not do any I/O
+			throw new IllegalStateException(e);
+		}
+		return matrix;
+	}
+
+	/**
+	 * run Dijkstra on the reweighted arcs from every source, each worker
+	 * taking the next source until none is left or any worker has failed
+	 *
+	 * @param sources
+	 *            : int[] - source vertices
+	 * @param threads
+	 *            : int - number of worker threads
+	 * @param sink
+	 *            : RowSink - receives the row of every source
+	 * @throws IOException
+	 *             if the sink fails
+	 */
+	public void run(final int[] sources, int threads, final RowSink sink)
+			throws IOException {
+		final SearchStatePool states = new SearchStatePool(numNodes);
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1,
+				threads));
+		try {
+			Workers.forEach(pool, threads, sources.length, states,
+					new Workers.LaneFactory() {
+						@Override
+						public Workers.Lane create() {
+							final IntIndexedHeap pq = new IntIndexedHeap(
+									numNodes);
+							final int[] row = new int[numNodes + 1];
+							return new Workers.Lane() {
+								@Override
+								public boolean item(int i, SearchState st)
+										throws IOException {
+									int s = sources[i];
+									ShortestPath.sp_dijkstra(reweighted, s,
+											false, st, pq);
+									for (int v = 1; v <= numNodes; v++) {
+										int d = st.getDistance(v);
+										row[v] = d == SearchState.INFINITY ? d
+												: d - potential[s]
+														+ potential[v];
+									}
+									sink.row(i, s, row);
+									return true;
+								}
+							};
+						}
+					});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Johnson's algorithm interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Johnson's algorithm failed",
+					e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static int[] trim(int[] a, int length) {
+		int[] ret = new int[length];
+		System.arraycopy(a, 0, ret, 0, length);
+		return ret;
+	}
+
+	/**
+	 * Driver function computing distances from random sources, or from every
+	 * vertex, into memory or into a matrix file
+	 *
+	 * @param args
+	 *            argument - input graph file or snapshot, optional number of
+	 *            sources (all if omitted), optional output matrix file
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java Johnson <graph file or snapshot> [sources] [matrix file]");
+			return;
+		}
+		File file = new File(args[0]);
+		CSRGraph g = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.load(file)
+				: EdgeListReader.readCSRGraph(file);
+		int k = args.length > 1 ? Integer.parseInt(args[1]) : g.numNodes;
+		int[] sources = new int[k];
+		Random random = new Random(1);
+		for (int i = 0; i < k; i++) {
+			sources[i] = k == g.numNodes ? i + 1 : 1 + random.nextInt(g.numNodes);
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		long start = System.nanoTime();
+		Johnson johnson = new Johnson(g);
+		System.out.println("Potentials: " + (System.nanoTime() - start)
+				/ 1000000 + " ms");
+
+		start = System.nanoTime();
+		if (args.length > 2) {
+			try (DistanceMatrix.FileSink sink = new DistanceMatrix.FileSink(
+					new File(args[2]), sources, g.numNodes)) {
+				johnson.run(sources, threads, sink);
+			}
+		} else {
+			johnson.distances(sources, threads, true);
+		}
+		System.out.println(k + " sources on " + threads + " threads: "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+	}
+}
@@ -4,24 +4,28 @@
  * @author Peng Li
  * @author Nan Zhang
  */
+import graph.EdgeListReader;
 import graph.Graph;
+import graph.GraphSnapshot;
 import graph.Vertex;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
 
 public class Level1 {
-	public static void main(String[] args) throws FileNotFoundException {
+	public static void main(String[] args) throws IOException {
 		// read in a directed graph
-		Scanner in;
+		Graph input;
 		if (args.length != 0) {
-			in = new Scanner(new File(args[0]));
+			File file = new File(args[0]);
+			if (GraphSnapshot.isSnapshot(file)) {
+				input = GraphSnapshot.map(file).toGraph();
+			} else {
+				input = EdgeListReader.readGraph(file, true);
+			}
 		} else {
-			in = new Scanner(System.in);
+			input = EdgeListReader.readGraph(System.in, true);
 		}
-		Graph input = Graph.readGraph(in, true);
-		in.close();
 
 		// find the source vertex for shortest path calculation according to the
 		// specification, source vertex is defined in DEF.java
@@ -32,29 +36,38 @@ public class Level1 {
 		boolean zeroCycleSensitive = false;
 		String algoType = "";
 		boolean hasNegCycle = false;
+		SearchState st = new SearchState(input.numNodes);
 
-		int graphType = ShortestPath.sp_categorizer(input, zeroCycleSensitive);
+		int graphType = ShortestPath.sp_categorizer(input, source,
+				zeroCycleSensitive);
 
 		switch (graphType) {
 		case DEF.UNIFORM_WEIGHT:
 			algoType = "BFS";
-			ShortestPath.sp_bfs(input, source);
+			ShortestPath.sp_bfs(input, source, st);
 			break;
 
 		case DEF.DAG:
 			algoType = "DAG";
-			ShortestPath.sp_dag(input, source, zeroCycleSensitive);
+			ShortestPath.sp_dag(input, source, zeroCycleSensitive, st);
 			break;
 
 		case DEF.NON_NEG_WEIGHT:
 			algoType = "Dij";
-			ShortestPath.sp_dijkstra(input, source, zeroCycleSensitive);
+			// small integer weights are served by a bucket queue
+			if (ShortestPath.maxEdgeWeight(input, source)
+					<= DEF.DIAL_WEIGHT_CUT_OFF) {
+				ShortestPath.sp_dial(input, source, zeroCycleSensitive, st);
+			} else {
+				ShortestPath.sp_dijkstra(input, source, zeroCycleSensitive,
+						st);
+			}
 			break;
 
 		case DEF.OTHER:
 			algoType = "B-F";
-			hasNegCycle = !ShortestPath
-					.sp_bf(input, source, zeroCycleSensitive);
+			hasNegCycle = !ShortestPath.sp_bf(input, source,
+					zeroCycleSensitive, st);
 			break;
 
 		default:
@@ -64,18 +77,19 @@ public class Level1 {
 		if (hasNegCycle) {
 			System.out.println(DEF.ERROR_LEVEL1);
 		} else {
-			printOutput(input, source, algoType);
+			printOutput(input, st, algoType);
 		}
 	}
 
-	private static void printOutput(Graph g, Vertex source, String algoType) {
+	private static void printOutput(Graph g, SearchState st,
+			String algoType) {
 		long spSum = 0;
 
 		// calculate and output shorted path length sum of all vertices
 		// reachable from source
 		for (Vertex v : g) {
-			if (v.distance != Integer.MAX_VALUE) {
-				spSum += v.distance;
+			if (st.getDistance(v.name) != SearchState.INFINITY) {
+				spSum += st.getDistance(v.name);
 			}
 		}
 		System.out.println(algoType + " " + spSum);
@@ -87,14 +101,14 @@ public class Level1 {
 				line.setLength(0);
 				line.append(v.name);
 				line.append(" ");
-				if (v.distance != Integer.MAX_VALUE) {
-					line.append(v.distance);
+				if (st.getDistance(v.name) != SearchState.INFINITY) {
+					line.append(st.getDistance(v.name));
 				} else {
 					line.append("INF");
 				}
 				line.append(" ");
-				if (v.parent != null) {
-					line.append(v.parent);
+				if (st.getParent(v.name) != 0) {
+					line.append(st.getParent(v.name));
 				} else {
 					line.append("-");
 				}
@@ -5,25 +5,29 @@
  * @author Nan Zhang
  */
 import graph.Edge;
+import graph.EdgeListReader;
 import graph.Graph;
+import graph.GraphSnapshot;
 import graph.Vertex;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.List;
-import java.util.Scanner;
 
 public class Level2 {
-	public static void main(String[] args) throws FileNotFoundException {
+	public static void main(String[] args) throws IOException {
 		// read in a directed graph
-		Scanner in;
+		Graph input;
 		if (args.length != 0) {
-			in = new Scanner(new File(args[0]));
+			File file = new File(args[0]);
+			if (GraphSnapshot.isSnapshot(file)) {
+				input = GraphSnapshot.map(file).toGraph();
+			} else {
+				input = EdgeListReader.readGraph(file, true);
+			}
 		} else {
-			in = new Scanner(System.in);
+			input = EdgeListReader.readGraph(System.in, true);
 		}
-		Graph input = Graph.readGraph(in, true);
-		in.close();
 
 		// find the source vertex for shortest path calculation according to the
 		// specification, source vertex is defined in DEF.java
@@ -33,25 +37,34 @@ public class Level2 {
 		// allowed.
 		boolean zeroCycleSensitive = true;
 		boolean hasNegCycle = false;
+		SearchState st = new SearchState(input.numNodes);
 
-		int graphType = ShortestPath.sp_categorizer(input, zeroCycleSensitive);
+		int graphType = ShortestPath.sp_categorizer(input, source,
+				zeroCycleSensitive);
 
 		switch (graphType) {
 		case DEF.UNIFORM_WEIGHT:
-			ShortestPath.sp_bfs(input, source);
+			ShortestPath.sp_bfs(input, source, st);
 			break;
 
 		case DEF.DAG:
-			ShortestPath.sp_dag(input, source, zeroCycleSensitive);
+			ShortestPath.sp_dag(input, source, zeroCycleSensitive, st);
 			break;
 
 		case DEF.NON_NEG_WEIGHT:
-			ShortestPath.sp_dijkstra(input, source, zeroCycleSensitive);
+			// small integer weights are served by a bucket queue
+			if (ShortestPath.maxEdgeWeight(input, source)
+					<= DEF.DIAL_WEIGHT_CUT_OFF) {
+				ShortestPath.sp_dial(input, source, zeroCycleSensitive, st);
+			} else {
+				ShortestPath.sp_dijkstra(input, source, zeroCycleSensitive,
+						st);
+			}
 			break;
 
 		case DEF.OTHER:
-			hasNegCycle = !ShortestPath
-					.sp_bf(input, source, zeroCycleSensitive);
+			hasNegCycle = !ShortestPath.sp_bf(input, source,
+					zeroCycleSensitive, st);
 			break;
 
 		default:
@@ -60,23 +73,24 @@ public class Level2 {
 
 		if (hasNegCycle) {
 			System.out.println(DEF.ERROR_LEVEL2);
-			List<Edge> nonPosCycle = ShortestPath.findNonPosCycle(input);
+			List<Edge> nonPosCycle = ShortestPath.findNonPosCycle(input,
+					st);
 			// output the non-positive cycle found
 			for (Edge e : nonPosCycle) {
 				System.out.println(e);
 			}
 		} else {
-			Graph d = ShortestPath.countSPPath(input);
-			printOutput(d);
+			ShortestPath.countSPPath(input, st);
+			printOutput(input, st);
 		}
 	}
 
-	private static void printOutput(Graph g) {
+	private static void printOutput(Graph g, SearchState st) {
 		int pathCountSum = 0;
 		// calculate and output shorted path count sum of all vertices
 		// reachable from source
 		for (Vertex v : g) {
-			pathCountSum += v.spCount;
+			pathCountSum += st.getSpCount(v.name);
 		}
 		System.out.println(pathCountSum);
 
@@ -87,13 +101,13 @@ public class Level2 {
 				line.setLength(0);
 				line.append(v.name);
 				line.append(" ");
-				if (v.distance != Integer.MAX_VALUE) {
-					line.append(v.distance);
+				if (st.getDistance(v.name) != SearchState.INFINITY) {
+					line.append(st.getDistance(v.name));
 				} else {
 					line.append("INF");
 				}
 				line.append(" ");
-				line.append(v.spCount);
+				line.append(st.getSpCount(v.name));
 				System.out.println(line.toString());
 			}
 		}
@@ -0,0 +1,306 @@
+/**
+ * Bit-parallel breadth first search from many sources at once, for graphs
+ * with uniform positive edge weight. Every vertex keeps a few words of bits,
+ * one bit per source: seen (the source has reached the vertex) and visit (the
+ * source reached it on the last level). One scan of the out arcs of a vertex
+ * pushes its visit bits of all sources to its heads with a word-wise or, so
+ * up to 64 * DEF.MSBFS_WORDS searches share each adjacency scan. More sources
+ * are searched in successive batches. A level with a small frontier only
+ * visits the frontier and the heads of its arcs, a large one sweeps all
+ * vertices in order.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.EdgeListReader;
+import graph.GraphSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MultiSourceBFS {
+	/**
+	 * receives the vertices reached by each source
+	 */
+	public interface Visitor {
+		/**
+		 * called once for every source and vertex it reaches, levels in
+		 * ascending order
+		 *
+		 * @param source
+		 *            : int - index of the source in the sources array
+		 * @param v
+		 *            : int - reached vertex
+		 * @param distance
+		 *            : int - shortest path distance from the source to v
+		 */
+		void visit(int source, int v, int distance);
+	}
+
+	private final CSRGraph g;
+	private final int words; // bit words per vertex, 64 sources each
+	private final long[] seen;
+	private final long[] visit;
+	private final long[] next;
+	private final int[] frontier; // vertices with visit bits
+	private final int[] reached; // vertices given bits on this level
+	private final int[] touched; // stamp of the last level reaching a vertex
+	private int stamp;
+
+	/**
+	 * Constructor for MultiSourceBFS with DEF.MSBFS_WORDS words per vertex
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with uniform positive edge weight
+	 */
+	public MultiSourceBFS(CSRGraph g) {
+		this(g, DEF.MSBFS_WORDS);
+	}
+
+	/**
+	 * Constructor for MultiSourceBFS
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with uniform positive edge weight
+	 * @param words
+	 *            : int - bit words per vertex, a batch searches 64 * words
+	 *            sources
+	 */
+	public MultiSourceBFS(CSRGraph g, int words) {
+		if (words < 1) {
+			throw new IllegalArgumentException("words must be positive: "
+					+ words);
+		}
+		this.g = g;
+		this.words = words;
+		seen = new long[(g.numNodes + 1) * words];
+		visit = new long[seen.length];
+		next = new long[seen.length];
+		frontier = new int[g.numNodes];
+		reached = new int[g.numNodes];
+		touched = new int[g.numNodes + 1];
+	}
+
+	/**
+	 * breadth first search from every source
+	 *
+	 * @param sources
+	 *            : int[] - source vertices
+	 * @param visitor
+	 *            : Visitor - receives (source, vertex, distance) of every
+	 *            reachable pair
+	 */
+	public void run(int[] sources, Visitor visitor) {
+		// any arc carries the uniform positive edge weight
+		int edgeWeight = g.numEdges > 0 ? g.arcWeight(0) : 0;
+		for (int base = 0; base < sources.length; base += 64 * words) {
+			int k = Math.min(64 * words, sources.length - base);
+			runBatch(sources, base, k, edgeWeight, visitor);
+		}
+	}
+
+	/**
+	 * distance from every source to every vertex
+	 *
+	 * @param sources
+	 *            : int[] - source vertices
+	 * @return : int[][] - [i][v] distance from sources[i] to v,
+	 *         SearchState.INFINITY if unreachable
+	 */
+	public int[][] distanceMatrix(int[] sources) {
+		final int[][] matrix = new int[sources.length][g.numNodes + 1];
+		for (int[] row : matrix) {
+			Arrays.fill(row, SearchState.INFINITY);
+		}
+		run(sources, new Visitor() {
+			@Override
+			public void visit(int source, int v, int distance) {
+				matrix[source][v] = distance;
+			}
+		});
+		return matrix;
+	}
+
+	/**
+	 * search sources[base, base + k) together, k at most 64 * words
+	 */
+	private void runBatch(int[] sources, int base, int k, int edgeWeight,
+			Visitor visitor) {
+		// only the words holding a source are used
+		int w = (k + 63) >>> 6;
+		int used = (g.numNodes + 1) * w;
+		Arrays.fill(seen, 0, used, 0);
+		Arrays.fill(visit, 0, used, 0);
+		Arrays.fill(next, 0, used, 0);
+		for (int i = 0; i < k; i++) {
+			int s = sources[base + i];
+			seen[s * w + (i >>> 6)] |= 1L << i;
+			visit[s * w + (i >>> 6)] |= 1L << i;
+			visitor.visit(base + i, s, 0);
+		}
+
+		// vertices with visit bits, and vertices that received bits
+		int frontierSize = 0;
+		stamp++;
+		for (int i = 0; i < k; i++) {
+			int s = sources[base + i];
+			if (touched[s] != stamp) {
+				touched[s] = stamp;
+				frontier[frontierSize++] = s;
+			}
+		}
+		int level = 0;
+		while (frontierSize > 0) {
+			level++;
+			stamp++;
+			// a large frontier is cheaper to find by a sweep over all vertices
+			boolean dense = frontierSize > g.numNodes / DEF.MSBFS_SPARSE;
+			int reachedSize = 0;
+			if (dense) {
+				for (int u = 1; u <= g.numNodes; u++) {
+					push(u, w);
+				}
+			} else {
+				for (int i = 0; i < frontierSize; i++) {
+					int u = frontier[i];
+					for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+						int v = g.arcHead(a);
+						if (touched[v] != stamp) {
+							touched[v] = stamp;
+							reached[reachedSize++] = v;
+						}
+					}
+					push(u, w);
+				}
+			}
+			for (int i = 0; i < frontierSize; i++) {
+				int o = frontier[i] * w;
+				for (int j = 0; j < w; j++) {
+					visit[o + j] = 0;
+				}
+			}
+
+			frontierSize = 0;
+			int distance = level * edgeWeight;
+			if (dense) {
+				for (int v = 1; v <= g.numNodes; v++) {
+					if (settle(v, w, base, distance, visitor)) {
+						frontier[frontierSize++] = v;
+					}
+				}
+			} else {
+				for (int i = 0; i < reachedSize; i++) {
+					int v = reached[i];
+					if (settle(v, w, base, distance, visitor)) {
+						frontier[frontierSize++] = v;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * push the visit bits of u along its out arcs
+	 */
+	private void push(int u, int w) {
+		int o = u * w;
+		long any = 0;
+		for (int j = 0; j < w; j++) {
+			any |= visit[o + j];
+		}
+		if (any == 0) {
+			return;
+		}
+		for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+			int q = g.arcHead(a) * w;
+			for (int j = 0; j < w; j++) {
+				next[q + j] |= visit[o + j];
+			}
+		}
+	}
+
+	/**
+	 * sources new to v form its visit bits of the next level, each is
+	 * reported to the visitor
+	 *
+	 * @return : boolean - true if v has visit bits
+	 */
+	private boolean settle(int v, int w, int base, int distance,
+			Visitor visitor) {
+		int q = v * w;
+		long any = 0;
+		for (int j = 0; j < w; j++) {
+			long fresh = next[q + j] & ~seen[q + j];
+			if (fresh == 0) {
+				next[q + j] = 0;
+				continue;
+			}
+			next[q + j] = 0;
+			visit[q + j] = fresh;
+			seen[q + j] |= fresh;
+			any |= fresh;
+			while (fresh != 0) {
+				int bit = Long.numberOfTrailingZeros(fresh);
+				fresh &= fresh - 1;
+				visitor.visit(base + (j << 6) + bit, v, distance);
+			}
+		}
+		return any != 0;
+	}
+
+	/**
+	 * Driver function comparing one multi-source BFS with a sp_bfs per source
+	 * from random sources
+	 *
+	 * @param args
+	 *            argument - input graph file or snapshot, optional number of
+	 *            sources
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java MultiSourceBFS <graph file or snapshot> [sources]");
+			return;
+		}
+		File file = new File(args[0]);
+		CSRGraph g = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.load(file)
+				: EdgeListReader.readCSRGraph(file);
+		int k = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+		int[] sources = new int[k];
+		Random random = new Random(1);
+		for (int i = 0; i < k; i++) {
+			sources[i] = 1 + random.nextInt(g.numNodes);
+		}
+
+		// checksums keep both sides honest without storing k rows
+		final long[] sum = new long[1];
+		MultiSourceBFS bfs = new MultiSourceBFS(g);
+		long start = System.nanoTime();
+		bfs.run(sources, new Visitor() {
+			@Override
+			public void visit(int source, int v, int distance) {
+				sum[0] += distance;
+			}
+		});
+		System.out.println("Multi-source BFS, " + k + " sources: "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+
+		long expected = 0;
+		SearchState st = new SearchState(g.numNodes);
+		start = System.nanoTime();
+		for (int s : sources) {
+			ShortestPath.sp_bfs(g, s, st);
+			for (int v = 1; v <= g.numNodes; v++) {
+				if (st.isSeen(v)) {
+					expected += st.getDistance(v);
+				}
+			}
+		}
+		System.out.println("sp_bfs per source: "
+				+ (System.nanoTime() - start) / 1000000 + " ms"
+				+ (expected == sum[0] ? "" : " MISMATCH"));
+	}
+}
@@ -0,0 +1,376 @@
+/**
+ * Level synchronous parallel breadth first search for graphs with uniform
+ * positive edge weight. Each level is expanded either top-down, frontier
+ * vertices scanning their out arcs, or bottom-up, unvisited vertices scanning
+ * their in arcs until they meet a frontier vertex, whichever touches fewer
+ * arcs (Beamer's direction optimization). Frontier and visited sets are
+ * bitmaps.
+ *
+ * sp_bfs gives a vertex the parent that comes first in its FIFO queue. To
+ * reproduce those parents every level is kept sorted by (position of parent,
+ * out arc offset) and the smallest such key wins, which needs every candidate
+ * arc and rules out the early exit of a bottom-up step, so such a search stays
+ * top-down. Without that requirement the direction switches, distances are
+ * unchanged and parents still form a breadth first tree.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.EdgeListReader;
+import graph.GraphSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ParallelBFS {
+	private static final long ARC_MASK = 0xFFFFFFFFL;
+	private static final long UNSEEN = Long.MAX_VALUE;
+
+	private final CSRGraph g;
+	private final ExecutorService pool;
+
+	// state of one search, reused by the next one
+	private final long[] visited; // bitmap of visited vertices
+	private final long[] inFrontier; // bitmap of the current level
+	private final int[] parent;
+	private final int[] depth;
+	// (position of parent in the frontier, arc) of the next level
+	private final AtomicLongArray key;
+
+	/**
+	 * Constructor for ParallelBFS running on the common fork/join pool
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with uniform positive edge weight
+	 */
+	public ParallelBFS(CSRGraph g) {
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for ParallelBFS
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with uniform positive edge weight
+	 * @param pool
+	 *            : ExecutorService - threads expanding the levels
+	 */
+	public ParallelBFS(CSRGraph g, ExecutorService pool) {
+		this.g = g;
+		this.pool = pool;
+		visited = new long[(g.numNodes >> 6) + 1];
+		inFrontier = new long[visited.length];
+		parent = new int[g.numNodes + 1];
+		depth = new int[g.numNodes + 1];
+		key = new AtomicLongArray(g.numNodes + 1);
+		for (int v = 1; v <= g.numNodes; v++) {
+			key.lazySet(v, UNSEEN);
+		}
+	}
+
+	/**
+	 * breadth first search from s with the parents of sp_bfs
+	 *
+	 * @param s
+	 *            : int - source vertex
+	 * @param st
+	 *            : SearchState - output, distance and parent of each vertex
+	 */
+	public void run(int s, SearchState st) {
+		run(s, st, true);
+	}
+
+	/**
+	 * breadth first search from s
+	 *
+	 * @param s
+	 *            : int - source vertex
+	 * @param st
+	 *            : SearchState - output, distance and parent of each vertex
+	 * @param canonical
+	 *            : boolean - true if parents have to be those of sp_bfs,
+	 *            false to allow bottom-up levels
+	 * @return : int - number of bottom-up levels
+	 */
+	public int run(int s, SearchState st, boolean canonical) {
+		// any arc carries the uniform positive edge weight
+		int edgeWeight = g.numEdges > 0 ? g.arcWeight(0) : 0;
+		Arrays.fill(visited, 0);
+
+		int[] frontier = new int[] { s };
+		set(visited, s);
+		parent[s] = 0;
+		depth[s] = 0;
+		// arcs out of the frontier and into unvisited vertices
+		long frontierArcs = g.outDegree(s);
+		long unvisitedArcs = g.numEdges - g.inDegree(s);
+		boolean bottomUp = false;
+		int bottomUpLevels = 0;
+		int level = 0;
+
+		try {
+			while (frontier.length > 0) {
+				if (canonical) {
+					bottomUp = false;
+				} else if (!bottomUp
+						&& frontierArcs > unvisitedArcs / DEF.BFS_ALPHA) {
+					bottomUp = true;
+				} else if (bottomUp
+						&& frontier.length < g.numNodes / DEF.BFS_BETA) {
+					bottomUp = false;
+				}
+				int[] next;
+				if (bottomUp) {
+					bottomUpLevels++;
+					Arrays.fill(inFrontier, 0);
+					for (int u : frontier) {
+						set(inFrontier, u);
+					}
+					next = bottomUp();
+				} else {
+					next = topDown(frontier, canonical);
+				}
+				if (canonical) {
+					next = sortLevel(next, frontier);
+				}
+
+				// the new level becomes the frontier
+				level++;
+				frontierArcs = 0;
+				for (int v : next) {
+					set(visited, v);
+					depth[v] = level;
+					if (!canonical) {
+						frontierArcs += g.outDegree(v);
+						unvisitedArcs -= g.inDegree(v);
+					}
+				}
+				frontier = next;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Parallel BFS interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Parallel BFS failed",
+					e.getCause());
+		}
+
+		st.reset();
+		for (int v = 1; v <= g.numNodes; v++) {
+			if (isSet(visited, v)) {
+				st.setDistance(v, depth[v] * edgeWeight);
+				st.setParent(v, parent[v]);
+				st.setSeen(v, true);
+				key.lazySet(v, UNSEEN);
+			}
+		}
+		return bottomUpLevels;
+	}
+
+	/**
+	 * frontier vertices offer themselves as parent to their unvisited heads
+	 *
+	 * @return : int[] - vertices of the next level, unordered
+	 */
+	private int[] topDown(final int[] frontier, final boolean canonical)
+			throws InterruptedException, ExecutionException {
+		List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+		for (int lo = 0; lo < frontier.length; lo += DEF.PARALLEL_GRAIN) {
+			final int from = lo;
+			final int to = Math.min(frontier.length, lo + DEF.PARALLEL_GRAIN);
+			tasks.add(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					int[] found = new int[16];
+					int count = 0;
+					for (int p = from; p < to; p++) {
+						int u = frontier[p];
+						for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+							int v = g.arcHead(a);
+							if (isSet(visited, v)) {
+								continue;
+							}
+							long k = ((long) p << 32) | a;
+							long current = key.get(v);
+							// keep the smallest key, or any key at all
+							while (k < current && (canonical || current == UNSEEN)) {
+								if (key.compareAndSet(v, current, k)) {
+									if (current == UNSEEN) {
+										// first to find v, it reports v
+										if (count + 1 == found.length) {
+											found = Arrays.copyOf(found,
+													2 * found.length);
+										}
+										found[++count] = v;
+										parent[v] = u;
+									}
+									break;
+								}
+								current = key.get(v);
+							}
+						}
+					}
+					found[0] = count;
+					return found;
+				}
+			});
+		}
+		return concat(Workers.invoke(pool, tasks));
+	}
+
+	/**
+	 * unvisited vertices take the first frontier vertex among their in arcs
+	 * as parent
+	 *
+	 * @return : int[] - vertices of the next level, unordered
+	 */
+	private int[] bottomUp() throws InterruptedException, ExecutionException {
+		List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+		// chunks of whole bitmap words
+		final int words = visited.length;
+		final int grain = Math.max(1, DEF.PARALLEL_GRAIN >> 6);
+		for (int lo = 0; lo < words; lo += grain) {
+			final int from = lo;
+			final int to = Math.min(words, lo + grain);
+			tasks.add(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					int[] found = new int[16];
+					int count = 0;
+					for (int w = from; w < to; w++) {
+						long unvisited = ~visited[w];
+						while (unvisited != 0) {
+							int v = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+							unvisited &= unvisited - 1;
+							if (v == 0 || v > g.numNodes) {
+								continue;
+							}
+							for (int r = g.inBegin(v); r < g.inEnd(v); r++) {
+								int u = g.revArcTail(r);
+								if (isSet(inFrontier, u)) {
+									if (count + 1 == found.length) {
+										found = Arrays.copyOf(found,
+												2 * found.length);
+									}
+									found[++count] = v;
+									parent[v] = u;
+									break;
+								}
+							}
+						}
+					}
+					found[0] = count;
+					return found;
+				}
+			});
+		}
+		return concat(Workers.invoke(pool, tasks));
+	}
+
+	/**
+	 * order the next level as the FIFO queue of sp_bfs would, by the key of
+	 * each vertex, and fix the parents to the winning keys
+	 */
+	private int[] sortLevel(int[] next, int[] frontier) {
+		long[] keys = new long[next.length];
+		for (int i = 0; i < next.length; i++) {
+			keys[i] = key.get(next[i]);
+		}
+		Arrays.parallelSort(keys);
+		for (int i = 0; i < keys.length; i++) {
+			int v = g.arcHead((int) (keys[i] & ARC_MASK));
+			next[i] = v;
+			parent[v] = frontier[(int) (keys[i] >>> 32)];
+		}
+		return next;
+	}
+
+	/**
+	 * join the counted lists of the tasks
+	 */
+	private static int[] concat(List<int[]> lists) {
+		int size = 0;
+		for (int[] list : lists) {
+			size += list[0];
+		}
+		int[] ret = new int[size];
+		int i = 0;
+		for (int[] list : lists) {
+			System.arraycopy(list, 1, ret, i, list[0]);
+			i += list[0];
+		}
+		return ret;
+	}
+
+	private static boolean isSet(long[] bits, int v) {
+		return (bits[v >> 6] & (1L << v)) != 0;
+	}
+
+	private static void set(long[] bits, int v) {
+		bits[v >> 6] |= 1L << v;
+	}
+
+	/**
+	 * Driver function comparing parallel BFS with sp_bfs from DEF.SOURCE for
+	 * a growing number of threads
+	 *
+	 * @param args
+	 *            argument - input graph file or snapshot
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java ParallelBFS <graph file or snapshot>");
+			return;
+		}
+		File file = new File(args[0]);
+		CSRGraph g = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.load(file)
+				: EdgeListReader.readCSRGraph(file);
+
+		SearchState expected = new SearchState(g.numNodes);
+		long best = Long.MAX_VALUE;
+		for (int r = 0; r < 3; r++) {
+			long start = System.nanoTime();
+			ShortestPath.sp_bfs(g, DEF.SOURCE, expected);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.println("sp_bfs: " + best / 1000000 + " ms");
+
+		SearchState st = new SearchState(g.numNodes);
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			ParallelBFS bfs = new ParallelBFS(g, pool);
+			for (int mode = 0; mode < 2; mode++) {
+				boolean canonical = mode == 0;
+				best = Long.MAX_VALUE;
+				int bottomUpLevels = 0;
+				for (int r = 0; r < 3; r++) {
+					long start = System.nanoTime();
+					bottomUpLevels = bfs.run(DEF.SOURCE, st, canonical);
+					best = Math.min(best, System.nanoTime() - start);
+				}
+				boolean same = true;
+				for (int v = 1; v <= g.numNodes; v++) {
+					same &= st.getDistance(v) == expected.getDistance(v)
+							&& (!canonical || st.getParent(v) == expected
+									.getParent(v));
+				}
+				System.out.println((canonical ? "sp_bfs parents, "
+						: "any parents, ") + threads + " threads: " + best
+						/ 1000000 + " ms, " + bottomUpLevels
+						+ " bottom-up levels" + (same ? "" : " MISMATCH"));
+			}
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/**
+ * Parallel frontier based Bellman-Ford for graphs with negative weight edges.
+ * Every round relaxes the out arcs of the vertices improved in the previous
+ * round, in parallel chunks, and collects the improved heads into the other
+ * of two frontier buffers. Distance and parent of each vertex share one long,
+ * distance in the high half, and are replaced by a compare and set, so a
+ * relaxation never mixes the distance of one path with the parent of
+ * another.
+ *
+ * The result follows sp_bf: without a negative (or, zero cycle sensitive,
+ * non-positive) cycle reachable from the source it returns true with the same
+ * distances. Otherwise the frontier never empties. From round |V| on the
+ * parent pointers are checked for a cycle, and once one shows up it returns
+ * false with a vertex of that cycle as the cycle vertex of the search state,
+ * which is where findNonPosCycle starts its walk.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.EdgeListReader;
+import graph.GraphSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ParallelBellmanFord {
+	private static final long PARENT_MASK = 0xFFFFFFFFL;
+
+	private final CSRGraph g;
+	private final ExecutorService pool;
+
+	/**
+	 * Constructor for ParallelBellmanFord running on the common fork/join pool
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 */
+	public ParallelBellmanFord(CSRGraph g) {
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for ParallelBellmanFord
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @param pool
+	 *            : ExecutorService - threads relaxing the frontier
+	 */
+	public ParallelBellmanFord(CSRGraph g, ExecutorService pool) {
+		this.g = g;
+		this.pool = pool;
+	}
+
+	/**
+	 * single source shortest path from s
+	 *
+	 * @param s
+	 *            : int - source vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 * @return : boolean - true if no non-positive or negative cycle is found;
+	 *         false otherwise
+	 */
+	public boolean run(int s, boolean zeroCycleSensitive, SearchState st) {
+		final int n = g.numNodes;
+		AtomicLongArray label = new AtomicLongArray(n + 1);
+		long unreached = pack(SearchState.INFINITY, 0);
+		for (int v = 1; v <= n; v++) {
+			label.set(v, unreached);
+		}
+		label.set(s, pack(0, 0));
+		// round in which a vertex was last put into the next frontier
+		AtomicIntegerArray queued = new AtomicIntegerArray(n + 1);
+
+		int[] frontier = new int[n];
+		int[] next = new int[n];
+		int size = 0;
+		frontier[size++] = s;
+		int round = 0;
+		int cycleVertex = 0;
+		try {
+			while (size > 0) {
+				round++;
+				if (round >= n) {
+					cycleVertex = findParentCycle(label);
+					if (cycleVertex != 0) {
+						break;
+					}
+				}
+				int nextSize = 0;
+				for (int[] found : relax(frontier, size, round,
+						zeroCycleSensitive, label, queued)) {
+					System.arraycopy(found, 1, next, nextSize, found[0]);
+					nextSize += found[0];
+				}
+				int[] t = frontier;
+				frontier = next;
+				next = t;
+				size = nextSize;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Parallel Bellman-Ford interrupted",
+					e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Parallel Bellman-Ford failed",
+					e.getCause());
+		}
+
+		st.reset();
+		for (int v = 1; v <= n; v++) {
+			long l = label.get(v);
+			if (distance(l) != SearchState.INFINITY) {
+				st.setDistance(v, distance(l));
+				st.setParent(v, (int) (l & PARENT_MASK));
+			}
+		}
+		if (cycleVertex != 0) {
+			st.setCycleVertex(cycleVertex);
+			return false; // negative cycle
+		}
+		return true;
+	}
+
+	/**
+	 * relax the out arcs of the frontier in parallel, in chunks of
+	 * DEF.PARALLEL_GRAIN vertices
+	 *
+	 * @return : List<int[]> - vertices to relax next round of each chunk,
+	 *         first entry is the count
+	 */
+	private List<int[]> relax(final int[] frontier, int size, final int round,
+			final boolean zeroCycleSensitive, final AtomicLongArray label,
+			final AtomicIntegerArray queued) throws InterruptedException,
+			ExecutionException {
+		List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+		for (int lo = 0; lo < size; lo += DEF.PARALLEL_GRAIN) {
+			final int from = lo;
+			final int to = Math.min(size, lo + DEF.PARALLEL_GRAIN);
+			tasks.add(new Callable<int[]>() {
+				@Override
+				public int[] call() {
+					int[] found = new int[to - from + 1];
+					int count = 0;
+					for (int k = from; k < to; k++) {
+						int u = frontier[k];
+						int du = distance(label.get(u));
+						for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+							int v = g.arcHead(a);
+							int temp = du + g.arcWeight(a);
+							long update = pack(temp, u);
+							long current = label.get(v);
+							boolean relaxed = false;
+							while (distance(current) > temp
+									|| (zeroCycleSensitive && distance(current) == temp)) {
+								if (label.compareAndSet(v, current, update)) {
+									relaxed = true;
+									break;
+								}
+								current = label.get(v);
+							}
+							// one of the threads improving v queues it
+							if (relaxed && queued.get(v) != round
+									&& queued.getAndSet(v, round) != round) {
+								if (count + 1 == found.length) {
+									found = Arrays.copyOf(found,
+											2 * found.length);
+								}
+								found[++count] = v;
+							}
+						}
+					}
+					found[0] = count;
+					return found;
+				}
+			});
+		}
+		return Workers.invoke(pool, tasks);
+	}
+
+	/**
+	 * look for a cycle of parent pointers
+	 *
+	 * @param label
+	 *            : AtomicLongArray - packed distance and parent
+	 * @return : int - a vertex on a cycle, 0 if the pointers form a tree
+	 */
+	private int findParentCycle(AtomicLongArray label) {
+		// walk up from every vertex, marking the walk with its start vertex
+		int[] mark = new int[g.numNodes + 1];
+		for (int v = 1; v <= g.numNodes; v++) {
+			int u = v;
+			while (u != 0 && mark[u] == 0) {
+				mark[u] = v;
+				u = (int) (label.get(u) & PARENT_MASK);
+			}
+			if (u != 0 && mark[u] == v) {
+				return u;
+			}
+		}
+		return 0;
+	}
+
+	private static long pack(int distance, int parent) {
+		return ((long) distance << 32) | parent;
+	}
+
+	private static int distance(long label) {
+		return (int) (label >> 32);
+	}
+
+	/**
+	 * Driver function comparing parallel Bellman-Ford with sp_bf from
+	 * DEF.SOURCE for a growing number of threads
+	 *
+	 * @param args
+	 *            argument - input graph file or snapshot
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java ParallelBellmanFord <graph file or snapshot>");
+			return;
+		}
+		File file = new File(args[0]);
+		CSRGraph g = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.load(file)
+				: EdgeListReader.readCSRGraph(file);
+
+		SearchState expected = new SearchState(g.numNodes);
+		long start = System.nanoTime();
+		boolean noCycle = ShortestPath.sp_bf(g, DEF.SOURCE, false, expected);
+		System.out.println("sp_bf: " + (System.nanoTime() - start) / 1000000
+				+ " ms" + (noCycle ? "" : ", negative cycle"));
+
+		SearchState st = new SearchState(g.numNodes);
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			ParallelBellmanFord bf = new ParallelBellmanFord(g, pool);
+			start = System.nanoTime();
+			boolean result = bf.run(DEF.SOURCE, false, st);
+			long time = System.nanoTime() - start;
+			pool.shutdown();
+			boolean same = result == noCycle;
+			for (int v = 1; noCycle && v <= g.numNodes; v++) {
+				same &= st.getDistance(v) == expected.getDistance(v);
+			}
+			System.out.println(threads + " threads: " + time / 1000000
+					+ " ms" + (same ? "" : " MISMATCH"));
+		}
+	}
+}
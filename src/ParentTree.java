@@ -0,0 +1,95 @@
+/**
+ * Shortest path tree of a running Bellman-Ford search for Tarjan's subtree
+ * disassembly. The vertices in the tree are threaded in preorder through a
+ * doubly linked list with their depth, so the subtree of a vertex is the run
+ * of vertices after it that are deeper than it.
+ *
+ * When the distance of v improves, every vertex below v is out of date: its
+ * distance came through the old distance of v. Those vertices leave the tree,
+ * and Bellman-Ford skips them until they improve again. If the improvement of
+ * v comes from a vertex below v, the parent pointers close a cycle through v
+ * whose weight is negative (zero for an equal relaxation), which is reported
+ * as soon as the relaxation happens instead of after |V| passes.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import java.util.Arrays;
+
+class ParentTree {
+	private final int[] next; // next vertex in preorder, 0 ends the list
+	private final int[] prev; // previous vertex in preorder, 0 starts it
+	private final int[] depth;
+	private final boolean[] inTree;
+
+	/**
+	 * Constructor for ParentTree
+	 *
+	 * @param n
+	 *            : int - number of vertices, names 1..n can be stored
+	 */
+	ParentTree(int n) {
+		next = new int[n + 1];
+		prev = new int[n + 1];
+		depth = new int[n + 1];
+		inTree = new boolean[n + 1];
+	}
+
+	/**
+	 * start a new tree holding only the source
+	 *
+	 * @param s
+	 *            : int - source vertex
+	 */
+	void init(int s) {
+		Arrays.fill(inTree, false);
+		depth[0] = -1; // the list head stops every subtree walk
+		next[0] = s;
+		prev[0] = s;
+		next[s] = 0;
+		prev[s] = 0;
+		depth[s] = 0;
+		inTree[s] = true;
+	}
+
+	/** check if v is in the tree, a vertex out of it is out of date */
+	boolean contains(int v) {
+		return inTree[v];
+	}
+
+	/**
+	 * make v a child of u, taking the old subtree of v out of the tree
+	 *
+	 * @param u
+	 *            : int - new parent, in the tree
+	 * @param v
+	 *            : int - vertex whose distance improved through u
+	 * @return : boolean - false if u is v or below v, the parents then close
+	 *         a cycle through v
+	 */
+	boolean attach(int u, int v) {
+		if (u == v) {
+			return false;
+		}
+		if (inTree[v]) {
+			int x = next[v];
+			while (depth[x] > depth[v]) {
+				if (x == u) {
+					return false;
+				}
+				inTree[x] = false;
+				x = next[x];
+			}
+			// unlink v and its subtree
+			next[prev[v]] = x;
+			prev[x] = prev[v];
+		}
+		depth[v] = depth[u] + 1;
+		inTree[v] = true;
+		next[v] = next[u];
+		prev[next[u]] = v;
+		next[u] = v;
+		prev[v] = u;
+		return true;
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * Result of a point to point shortest path query
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.Edge;
+
+import java.util.List;
+
+public class PathResult {
+	public long distance; // length of the path, SearchState.INFINITY if none
+	public List<Edge> path; // edges from source to target, null if none
+	public int forwardExplored; // vertices settled by the forward search
+	public int backwardExplored; // vertices settled by the backward search
+
+	/**
+	 * Constructor for PathResult
+	 *
+	 * @param distance
+	 *            : long - length of the path
+	 * @param path
+	 *            : List<Edge> - edges of the path, null if target is not
+	 *            reachable
+	 * @param forwardExplored
+	 *            : int - vertices settled from the source side
+	 * @param backwardExplored
+	 *            : int - vertices settled from the target side
+	 */
+	public PathResult(long distance, List<Edge> path, int forwardExplored,
+			int backwardExplored) {
+		this.distance = distance;
+		this.path = path;
+		this.forwardExplored = forwardExplored;
+		this.backwardExplored = backwardExplored;
+	}
+
+	/**
+	 * check if the target was reached
+	 *
+	 * @return : boolean - true if a path was found
+	 */
+	public boolean isReachable() {
+		return path != null;
+	}
+
+	/**
+	 * total number of vertices settled by the query
+	 *
+	 * @return : int - sum of both directions
+	 */
+	public int explored() {
+		return forwardExplored + backwardExplored;
+	}
+
+	public String toString() {
+		return (isReachable() ? Long.toString(distance) : "INF") + " "
+				+ path + " explored " + explored();
+	}
+}
@@ -0,0 +1,359 @@
+/**
+ * Point to point shortest path queries. Unlike the single source algorithms
+ * in ShortestPath, these stop as soon as the distance to the target is known.
+ * The bidirectional versions search forward from the source over Vertex.Adj
+ * and backward from the target over Vertex.revAdj at the same time.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.Edge;
+import graph.Graph;
+import graph.Vertex;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import pq.IntIndexedHeap;
+import pq.IntPQ;
+
+public class PointToPoint {
+
+	/**
+	 * Dijkstra from s that stops once t is settled
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative weight edge
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param t
+	 *            : Vertex - target vertex
+	 * @param st
+	 *            : SearchState - search data of this query
+	 * @return : PathResult - distance and path from s to t
+	 */
+	public static PathResult dijkstra(Graph g, Vertex s, Vertex t,
+			SearchState st) {
+		return dijkstra(g, s, t, st, new IntIndexedHeap(g.numNodes));
+	}
+
+	/**
+	 * Dijkstra from s that stops once t is settled, over a given priority
+	 * queue. The queue is cleared before returning so it can be reused.
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative weight edge
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param t
+	 *            : Vertex - target vertex
+	 * @param st
+	 *            : SearchState - search data of this query
+	 * @param pq
+	 *            : IntPQ - empty priority queue with capacity g.numNodes
+	 * @return : PathResult - distance and path from s to t
+	 */
+	public static PathResult dijkstra(Graph g, Vertex s, Vertex t,
+			SearchState st, IntPQ pq) {
+		st.reset();
+		st.setDistance(s.name, 0);
+		pq.insert(s.name, 0);
+		int settled = 0;
+
+		while (!pq.isEmpty()) {
+			Vertex u = g.verts.get(pq.deleteMin());
+			st.setSeen(u.name, true);
+			settled++;
+			if (u == t) {
+				break; // distance of the target is final
+			}
+			for (Edge e : u.Adj) {
+				Vertex v = e.otherEnd(u);
+				if (!st.isSeen(v.name) && relax(u.name, v.name, e.Weight, st)) {
+					if (pq.contains(v.name)) {
+						pq.decreaseKey(v.name, st.getDistance(v.name));
+					} else {
+						pq.insert(v.name, st.getDistance(v.name));
+					}
+				}
+			}
+		}
+		pq.clear();
+
+		if (!st.isSeen(t.name)) {
+			return new PathResult(SearchState.INFINITY, null, settled, 0);
+		}
+		return new PathResult(st.getDistance(t.name), buildPath(g, s, t,
+				t.name, st, null, true), settled, 0);
+	}
+
+	/**
+	 * bidirectional Dijkstra, each step settles the vertex with the smaller
+	 * key of the two searches. The query stops when the two smallest keys
+	 * add up to at least the best path seen so far.
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative weight edge
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param t
+	 *            : Vertex - target vertex
+	 * @param fwd
+	 *            : SearchState - search data of the forward search
+	 * @param bwd
+	 *            : SearchState - search data of the backward search
+	 * @return : PathResult - distance and path from s to t
+	 */
+	public static PathResult bidirectionalDijkstra(Graph g, Vertex s,
+			Vertex t, SearchState fwd, SearchState bwd) {
+		fwd.reset();
+		bwd.reset();
+		IntIndexedHeap forward = new IntIndexedHeap(g.numNodes);
+		IntIndexedHeap backward = new IntIndexedHeap(g.numNodes);
+		fwd.setDistance(s.name, 0);
+		bwd.setDistance(t.name, 0);
+		forward.insert(s.name, 0);
+		backward.insert(t.name, 0);
+
+		long best = s == t ? 0 : Long.MAX_VALUE; // shortest s-t path so far
+		int meet = s == t ? s.name : 0; // vertex where that path joins
+		int settledForward = 0;
+		int settledBackward = 0;
+
+		while (!forward.isEmpty() && !backward.isEmpty()) {
+			long topForward = forward.getKey(forward.min());
+			long topBackward = backward.getKey(backward.min());
+			if (topForward + topBackward >= best) {
+				break; // no unsettled vertex can give a shorter path
+			}
+			if (topForward <= topBackward) {
+				Vertex u = g.verts.get(forward.deleteMin());
+				fwd.setSeen(u.name, true);
+				settledForward++;
+				for (Edge e : u.Adj) {
+					Vertex v = e.otherEnd(u);
+					if (fwd.isSeen(v.name)) {
+						continue;
+					}
+					if (relax(u.name, v.name, e.Weight, fwd)) {
+						if (forward.contains(v.name)) {
+							forward.decreaseKey(v.name, fwd.getDistance(v.name));
+						} else {
+							forward.insert(v.name, fwd.getDistance(v.name));
+						}
+					}
+					if (bwd.getDistance(v.name) != SearchState.INFINITY) {
+						long length = (long) fwd.getDistance(v.name)
+								+ bwd.getDistance(v.name);
+						if (length < best) {
+							best = length;
+							meet = v.name;
+						}
+					}
+				}
+			} else {
+				Vertex u = g.verts.get(backward.deleteMin());
+				bwd.setSeen(u.name, true);
+				settledBackward++;
+				for (Edge e : u.revAdj) {
+					Vertex v = e.otherEnd(u);
+					if (bwd.isSeen(v.name)) {
+						continue;
+					}
+					if (relax(u.name, v.name, e.Weight, bwd)) {
+						if (backward.contains(v.name)) {
+							backward.decreaseKey(v.name,
+									bwd.getDistance(v.name));
+						} else {
+							backward.insert(v.name, bwd.getDistance(v.name));
+						}
+					}
+					if (fwd.getDistance(v.name) != SearchState.INFINITY) {
+						long length = (long) fwd.getDistance(v.name)
+								+ bwd.getDistance(v.name);
+						if (length < best) {
+							best = length;
+							meet = v.name;
+						}
+					}
+				}
+			}
+		}
+
+		if (meet == 0) {
+			return new PathResult(SearchState.INFINITY, null, settledForward,
+					settledBackward);
+		}
+		return new PathResult(best, buildPath(g, s, t, meet, fwd, bwd, true),
+				settledForward, settledBackward);
+	}
+
+	/**
+	 * bidirectional breadth first search for graphs with uniform positive
+	 * edge weight. Each round expands the smaller of the two frontiers by one
+	 * level; the first round in which the searches meet gives the path with
+	 * the fewest edges.
+	 *
+	 * @param g
+	 *            : Graph - an uniform positive edge weight graph
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param t
+	 *            : Vertex - target vertex
+	 * @param fwd
+	 *            : SearchState - search data of the forward search, distance
+	 *            holds the number of edges
+	 * @param bwd
+	 *            : SearchState - search data of the backward search, distance
+	 *            holds the number of edges
+	 * @return : PathResult - distance and path from s to t
+	 */
+	public static PathResult bidirectionalBFS(Graph g, Vertex s, Vertex t,
+			SearchState fwd, SearchState bwd) {
+		fwd.reset();
+		bwd.reset();
+		fwd.setDistance(s.name, 0);
+		fwd.setSeen(s.name, true);
+		bwd.setDistance(t.name, 0);
+		bwd.setSeen(t.name, true);
+		List<Vertex> forward = new ArrayList<Vertex>();
+		List<Vertex> backward = new ArrayList<Vertex>();
+		forward.add(s);
+		backward.add(t);
+
+		long best = s == t ? 0 : Long.MAX_VALUE; // fewest edges so far
+		int meet = s == t ? s.name : 0; // vertex where that path joins
+		int visitedForward = 0;
+		int visitedBackward = 0;
+
+		while (meet == 0 && !forward.isEmpty() && !backward.isEmpty()) {
+			boolean isForward = forward.size() <= backward.size();
+			List<Vertex> frontier = isForward ? forward : backward;
+			SearchState mine = isForward ? fwd : bwd;
+			SearchState other = isForward ? bwd : fwd;
+			List<Vertex> next = new ArrayList<Vertex>();
+
+			for (Vertex u : frontier) {
+				for (Edge e : isForward ? u.Adj : u.revAdj) {
+					Vertex v = e.otherEnd(u);
+					if (mine.isSeen(v.name)) {
+						continue;
+					}
+					mine.setSeen(v.name, true);
+					mine.setParent(v.name, u.name);
+					mine.setDistance(v.name, mine.getDistance(u.name) + 1);
+					next.add(v);
+					if (other.isSeen(v.name)) {
+						long length = (long) mine.getDistance(v.name)
+								+ other.getDistance(v.name);
+						if (length < best) {
+							best = length;
+							meet = v.name;
+						}
+					}
+				}
+			}
+			if (isForward) {
+				visitedForward += frontier.size();
+				forward = next;
+			} else {
+				visitedBackward += frontier.size();
+				backward = next;
+			}
+		}
+
+		if (meet == 0) {
+			return new PathResult(SearchState.INFINITY, null, visitedForward,
+					visitedBackward);
+		}
+		List<Edge> path = buildPath(g, s, t, meet, fwd, bwd, false);
+		long distance = 0;
+		for (Edge e : path) {
+			distance += e.Weight;
+		}
+		return new PathResult(distance, path, visitedForward, visitedBackward);
+	}
+
+	/**
+	 * join the forward parent chain from s to meet and the backward parent
+	 * chain from meet to t into a list of edges
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @param t
+	 *            : Vertex - target vertex
+	 * @param meet
+	 *            : int - vertex on the path known to both searches
+	 * @param fwd
+	 *            : SearchState - forward search data
+	 * @param bwd
+	 *            : SearchState - backward search data, null if meet is t
+	 * @param weighted
+	 *            : boolean - true if distances are path lengths, false if
+	 *            they count edges
+	 * @return : List<Edge> - edges from s to t
+	 */
+	static List<Edge> buildPath(Graph g, Vertex s, Vertex t, int meet,
+			SearchState fwd, SearchState bwd, boolean weighted) {
+		LinkedList<Edge> path = new LinkedList<Edge>();
+		for (int v = meet; v != s.name; v = fwd.getParent(v)) {
+			int u = fwd.getParent(v);
+			path.addFirst(findEdge(g.verts.get(u), v, weighted ? fwd
+					.getDistance(v) - fwd.getDistance(u) : -1));
+		}
+		if (bwd != null) {
+			for (int u = meet; u != t.name; u = bwd.getParent(u)) {
+				int v = bwd.getParent(u);
+				path.addLast(findEdge(g.verts.get(u), v, weighted ? bwd
+						.getDistance(u) - bwd.getDistance(v) : -1));
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * find an edge from u to the vertex named v
+	 *
+	 * @param u
+	 *            : Vertex - from vertex
+	 * @param v
+	 *            : int - to vertex
+	 * @param w
+	 *            : int - required weight, -1 for any
+	 * @return : Edge - such an edge
+	 */
+	private static Edge findEdge(Vertex u, int v, int w) {
+		for (Edge e : u.Adj) {
+			if (e.otherEnd(u).name == v && (w < 0 || e.Weight == w)) {
+				return e;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * helper method for relaxing an edge of either search direction
+	 *
+	 * @param u
+	 *            : int - settled vertex
+	 * @param v
+	 *            : int - other end of the edge
+	 * @param w
+	 *            : int - weight of the edge
+	 * @param st
+	 *            : SearchState - search data of that direction
+	 * @return : boolean - true if edge is relaxed, false otherwise
+	 */
+	private static boolean relax(int u, int v, int w, SearchState st) {
+		int temp = st.getDistance(u) + w;
+		if (st.getDistance(v) > temp) {
+			st.setDistance(v, temp);
+			st.setParent(v, u);
+			return true;
+		}
+		return false;
+	}
+}
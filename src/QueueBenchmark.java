@@ -0,0 +1,77 @@
+/**
+ * Driver program comparing the priority queues available to Dijkstra on a
+ * real graph. Every queue runs the same single source query from DEF.SOURCE,
+ * the best of several runs is reported and distances are checked against the
+ * binary heap.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.EdgeListReader;
+import graph.GraphSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import pq.IntPQ;
+
+public class QueueBenchmark {
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java QueueBenchmark <graph file or snapshot>");
+			return;
+		}
+		File file = new File(args[0]);
+		CSRGraph g = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.load(file)
+				: EdgeListReader.readCSRGraph(file);
+
+		int maxWeight = 0;
+		for (int a = 0; a < g.numEdges; a++) {
+			if (g.arcWeight(a) < 0) {
+				System.out.println("Graph has negative edge weight, Dijkstra is not applicable");
+				return;
+			}
+			maxWeight = Math.max(maxWeight, g.arcWeight(a));
+		}
+
+		int[] queueTypes = { DEF.QUEUE_BINARY, DEF.QUEUE_DARY,
+				DEF.QUEUE_PAIRING, DEF.QUEUE_QUATERNARY, DEF.QUEUE_DIAL,
+				DEF.QUEUE_RADIX };
+		String[] names = { "binary", DEF.DARY_ARITY + "-ary", "pairing",
+				"4-ary packed", "Dial", "radix" };
+
+		int[] expected = null;
+		SearchState st = new SearchState(g.numNodes);
+		int[] distance = new int[g.numNodes + 1];
+		for (int i = 0; i < queueTypes.length; i++) {
+			if (queueTypes[i] == DEF.QUEUE_DIAL
+					&& maxWeight > DEF.DIAL_WEIGHT_CUT_OFF) {
+				System.out.println(names[i] + ": skipped, max weight "
+						+ maxWeight);
+				continue;
+			}
+			long best = Long.MAX_VALUE;
+			for (int r = 0; r < RUNS; r++) {
+				// the O(|V|) allocation of the queue is not timed
+				IntPQ queue = ShortestPath.createQueue(queueTypes[i],
+						g.numNodes, maxWeight);
+				long start = System.nanoTime();
+				ShortestPath.sp_dijkstra(g, DEF.SOURCE, false, st, queue);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			for (int v = 1; v <= g.numNodes; v++) {
+				distance[v] = st.getDistance(v);
+			}
+			if (expected == null) {
+				expected = distance.clone();
+			}
+			String check = Arrays.equals(expected, distance) ? "" : " MISMATCH";
+			System.out.println(names[i] + ": " + best / 1000000 + " ms"
+					+ check);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * Per query search data of a shortest path algorithm, indexed by vertex name.
+ * Algorithms in ShortestPath write distance, parent and counters here instead
+ * of into the shared Vertex objects, so one read only Graph (or CSRGraph) can
+ * serve several queries at the same time, each with its own state.
+ *
+ * The data of a vertex is only valid while its stamp equals the current epoch.
+ * reset() starts a new epoch instead of clearing the arrays, so a query costs
+ * time proportional to the vertices it touches, not to the graph size.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.Edge;
+
+import java.util.Arrays;
+
+public class SearchState {
+	public static final int INFINITY = Integer.MAX_VALUE;
+
+	private final int[] stamp; // epoch in which the vertex was last written
+	private final int[] distance; // distance to the vertex from the source
+	private final int[] parent; // parent of the vertex, 0 if none
+	private final boolean[] seen; // flag to check if the vertex is visited
+	private final int[] spCount; // count of shortest path from source
+	private Edge[] parentEdge; // edge from the parent, allocated on first use
+	private int epoch; // stamp of the running query, never 0
+	private int cycleVertex; // vertex on a reported cycle, 0 if none
+
+	/**
+	 * Constructor for SearchState
+	 *
+	 * @param n
+	 *            : int - number of vertices, names 1..n can be stored
+	 */
+	public SearchState(int n) {
+		stamp = new int[n + 1];
+		distance = new int[n + 1];
+		parent = new int[n + 1];
+		seen = new boolean[n + 1];
+		spCount = new int[n + 1];
+		epoch = 1;
+	}
+
+	/**
+	 * clear the data of the previous query in O(1); the stamps are only
+	 * cleared when the epoch counter wraps around
+	 */
+	public void reset() {
+		cycleVertex = 0;
+		epoch++;
+		if (epoch == 0) {
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+	}
+
+	/** largest vertex name this state can hold */
+	public int capacity() {
+		return distance.length - 1;
+	}
+
+	/**
+	 * check if vertex v has been written since the last reset
+	 *
+	 * @param v
+	 *            : int - vertex name
+	 * @return : boolean - true if any data of v belongs to this query
+	 */
+	public boolean isTouched(int v) {
+		return stamp[v] == epoch;
+	}
+
+	/**
+	 * stamp vertex v for the running query, putting its data back to the
+	 * initial values if it was last written by an earlier query
+	 *
+	 * @param v
+	 *            : int - vertex name
+	 */
+	private void touch(int v) {
+		if (stamp[v] != epoch) {
+			stamp[v] = epoch;
+			distance[v] = INFINITY;
+			parent[v] = 0;
+			seen[v] = false;
+			spCount[v] = 0;
+			if (parentEdge != null) {
+				parentEdge[v] = null;
+			}
+		}
+	}
+
+	public int getDistance(int v) {
+		return stamp[v] == epoch ? distance[v] : INFINITY;
+	}
+
+	public void setDistance(int v, int d) {
+		touch(v);
+		distance[v] = d;
+	}
+
+	public int getParent(int v) {
+		return stamp[v] == epoch ? parent[v] : 0;
+	}
+
+	public void setParent(int v, int p) {
+		touch(v);
+		parent[v] = p;
+	}
+
+	/** edge from the parent of v, null if the algorithm only kept parents */
+	public Edge getParentEdge(int v) {
+		return parentEdge != null && stamp[v] == epoch ? parentEdge[v] : null;
+	}
+
+	public void setParentEdge(int v, Edge e) {
+		if (parentEdge == null) {
+			parentEdge = new Edge[distance.length];
+		}
+		touch(v);
+		parentEdge[v] = e;
+	}
+
+	public boolean isSeen(int v) {
+		return stamp[v] == epoch && seen[v];
+	}
+
+	public void setSeen(int v, boolean s) {
+		touch(v);
+		seen[v] = s;
+	}
+
+	public int getSpCount(int v) {
+		return stamp[v] == epoch ? spCount[v] : 0;
+	}
+
+	public void setSpCount(int v, int c) {
+		touch(v);
+		spCount[v] = c;
+	}
+
+	/**
+	 * vertex on the non-positive cycle found by a failed Bellman-Ford run,
+	 * following its parents leads around the cycle
+	 *
+	 * @return : int - vertex on the cycle, 0 if no cycle was found
+	 */
+	public int getCycleVertex() {
+		return cycleVertex;
+	}
+
+	public void setCycleVertex(int v) {
+		cycleVertex = v;
+	}
+}
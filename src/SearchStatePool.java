@@ -0,0 +1,53 @@
+/**
+ * Thread safe pool of SearchState objects for one graph size, so concurrent
+ * queries on a shared graph reuse their search arrays instead of allocating
+ * new ones per query.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class SearchStatePool {
+	private final int numNodes; // number of vertices of the served graph
+	private final ConcurrentLinkedQueue<SearchState> idle; // released states
+
+	/**
+	 * Constructor for SearchStatePool
+	 *
+	 * @param n
+	 *            : int - number of vertices of the graph
+	 */
+	public SearchStatePool(int n) {
+		numNodes = n;
+		idle = new ConcurrentLinkedQueue<SearchState>();
+	}
+
+	/**
+	 * take a cleared state from the pool, or create one if none is idle
+	 *
+	 * @return : SearchState - state owned by the caller until release()
+	 */
+	public SearchState acquire() {
+		SearchState st = idle.poll();
+		if (st == null) {
+			return new SearchState(numNodes);
+		}
+		st.reset();
+		return st;
+	}
+
+	/**
+	 * give a state back to the pool, the caller must not use it afterwards
+	 *
+	 * @param st
+	 *            : SearchState - state obtained from acquire()
+	 */
+	public void release(SearchState st) {
+		if (st.capacity() != numNodes) {
+			throw new IllegalArgumentException(
+					"SearchState does not belong to this pool");
+		}
+		idle.offer(st);
+	}
+}
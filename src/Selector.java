@@ -0,0 +1,619 @@
+/**
+ * Cost model algorithm selector. Engines are kept in a registry; for a query
+ * the selector asks every engine that accepts the graph (read from its
+ * GraphProfile) and the query shape for the work it expects, turns the work
+ * into time with the nanoseconds per unit of work calibrated for that engine,
+ * and runs the cheapest one.
+ *
+ * Work is an abstract operation count built from the profile (vertices, arcs,
+ * weight range), the number of queries and the threads. Its unit differs from
+ * engine to engine; only the calibrated product is compared. calibrate()
+ * measures every engine on a sample graph, and every run moves the figure of
+ * the chosen engine towards the time it actually took. Each decision is kept
+ * with its predicted and actual time and the prediction of the other
+ * candidates, so the model can be checked against a workload, and the
+ * calibration can be saved and loaded.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import graph.CSRGraph;
+import graph.EdgeListReader;
+import graph.GraphProfile;
+import graph.GraphSnapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Selector {
+	private static final int CALIBRATION_RUNS = 3;
+
+	/**
+	 * shortest path algorithm the selector can choose
+	 */
+	public interface Engine {
+		/** unique name, also the key of its calibration */
+		String name();
+
+		/**
+		 * check if the engine answers this shape of query correctly on a graph
+		 *
+		 * @param p
+		 *            : GraphProfile - statistics of the graph
+		 * @param shape
+		 *            : int - DEF.QUERY_* shape of the query
+		 * @param zeroCycleSensitive
+		 *            : boolean - true if zero weight cycles must be reported
+		 * @return : boolean - true if the engine can be used
+		 */
+		boolean accepts(GraphProfile p, int shape, boolean zeroCycleSensitive);
+
+		/**
+		 * expected work of a query, including any index still to be built
+		 *
+		 * @param g
+		 *            : CSRGraph - input graph
+		 * @param p
+		 *            : GraphProfile - statistics of the graph
+		 * @param shape
+		 *            : int - DEF.QUERY_* shape of the query
+		 * @param queries
+		 *            : int - number of sources (or pairs)
+		 * @param threads
+		 *            : int - threads available
+		 * @return : double - work in the unit of this engine
+		 */
+		double work(CSRGraph g, GraphProfile p, int shape, int queries,
+				int threads);
+
+		/**
+		 * answer the query through Query.answer
+		 *
+		 * @param g
+		 *            : CSRGraph - input graph
+		 * @param q
+		 *            : Query - query to answer
+		 * @param pool
+		 *            : ExecutorService - threads of the selector
+		 * @param threads
+		 *            : int - number of threads of the pool
+		 * @return : boolean - false if a negative (or non-positive) cycle was
+		 *         found, true otherwise
+		 * @throws IOException
+		 *             if the row sink of the query fails
+		 */
+		boolean run(CSRGraph g, Query q, ExecutorService pool, int threads)
+				throws IOException;
+	}
+
+	/**
+	 * a batch of queries of one shape and where its answers go
+	 */
+	public static class Query {
+		public final int shape; // DEF.QUERY_* shape
+		public final int[] sources;
+		public final int[] targets; // target of each pair, point to point
+		public final boolean zeroCycleSensitive;
+		public final Johnson.RowSink rows; // rows of the other shapes
+		public final int[] distance; // answer of each pair, point to point
+
+		private Query(int shape, int[] sources, int[] targets,
+				boolean zeroCycleSensitive, Johnson.RowSink rows) {
+			this.shape = shape;
+			this.sources = sources;
+			this.targets = targets;
+			this.zeroCycleSensitive = zeroCycleSensitive;
+			this.rows = rows;
+			this.distance = targets == null ? null : new int[targets.length];
+		}
+
+		/**
+		 * distances from one source to every vertex
+		 *
+		 * @param s
+		 *            : int - source vertex
+		 * @param zeroCycleSensitive
+		 *            : boolean - true if zero weight cycles must be reported
+		 * @param rows
+		 *            : Johnson.RowSink - receives the row of s as row 0
+		 * @return : Query - the query
+		 */
+		public static Query singleSource(int s, boolean zeroCycleSensitive,
+				Johnson.RowSink rows) {
+			return new Query(DEF.QUERY_SINGLE_SOURCE, new int[] { s }, null,
+					zeroCycleSensitive, rows);
+		}
+
+		/**
+		 * distance of each pair (sources[i], targets[i]), answered in
+		 * distance[i]
+		 *
+		 * @param sources
+		 *            : int[] - source of each pair
+		 * @param targets
+		 *            : int[] - target of each pair
+		 * @param zeroCycleSensitive
+		 *            : boolean - true if zero weight cycles must be reported
+		 * @return : Query - the query
+		 */
+		public static Query pointToPoint(int[] sources, int[] targets,
+				boolean zeroCycleSensitive) {
+			if (sources.length != targets.length) {
+				throw new IllegalArgumentException(sources.length
+						+ " sources for " + targets.length + " targets");
+			}
+			return new Query(DEF.QUERY_POINT_TO_POINT, sources, targets,
+					zeroCycleSensitive, null);
+		}
+
+		/**
+		 * distances from many sources to every vertex
+		 *
+		 * @param sources
+		 *            : int[] - source vertices
+		 * @param zeroCycleSensitive
+		 *            : boolean - true if zero weight cycles must be reported
+		 * @param rows
+		 *            : Johnson.RowSink - receives the row of each source
+		 * @return : Query - the query
+		 */
+		public static Query manyToMany(int[] sources,
+				boolean zeroCycleSensitive, Johnson.RowSink rows) {
+			return new Query(DEF.QUERY_MANY_TO_MANY, sources, null,
+					zeroCycleSensitive, rows);
+		}
+
+		/** number of sources, or pairs */
+		public int size() {
+			return sources.length;
+		}
+
+		/**
+		 * hand over the full distance row of sources[i]; a pair keeps the
+		 * entry of its target. Safe to call from several threads for
+		 * different i.
+		 *
+		 * @param i
+		 *            : int - index of the source (or pair)
+		 * @param row
+		 *            : int[] - distance of each vertex 1..n
+		 * @throws IOException
+		 */
+		public void answer(int i, int[] row) throws IOException {
+			if (targets != null) {
+				distance[i] = row[targets[i]];
+			} else {
+				rows.row(i, sources[i], row);
+			}
+		}
+	}
+
+	/**
+	 * one selection: the engine run, its predicted and actual time, and the
+	 * predictions of the engines not chosen
+	 */
+	public static class Decision {
+		public final String engine;
+		public final int shape;
+		public final int queries;
+		public final long predictedNanos;
+		public final long actualNanos;
+		public final String candidates; // "name predicted ms" of every engine
+
+		Decision(String engine, int shape, int queries, long predictedNanos,
+				long actualNanos, String candidates) {
+			this.engine = engine;
+			this.shape = shape;
+			this.queries = queries;
+			this.predictedNanos = predictedNanos;
+			this.actualNanos = actualNanos;
+			this.candidates = candidates;
+		}
+
+		@Override
+		public String toString() {
+			return shapeName(shape) + " x" + queries + ": " + engine
+					+ " predicted " + predictedNanos / 1000000 + " ms, actual "
+					+ actualNanos / 1000000 + " ms [" + candidates + "]";
+		}
+	}
+
+	/**
+	 * a registered engine with its calibration
+	 */
+	private static class Entry {
+		final Engine engine;
+		double nanosPerWork;
+		int samples; // measurements averaged into nanosPerWork
+
+		Entry(Engine engine, double nanosPerWork) {
+			this.engine = engine;
+			this.nanosPerWork = nanosPerWork;
+			this.samples = 1;
+		}
+
+		void learn(double observed) {
+			nanosPerWork = (nanosPerWork * samples + observed) / (samples + 1);
+			samples++;
+		}
+	}
+
+	private final int threads;
+	private final ExecutorService pool;
+	private final List<Entry> registry = new ArrayList<Entry>();
+	private final List<Decision> log = new ArrayList<Decision>();
+
+	/**
+	 * Constructor for an empty Selector
+	 *
+	 * @param threads
+	 *            : int - threads available to the engines
+	 */
+	public Selector(int threads) {
+		this.threads = Math.max(1, threads);
+		this.pool = new ForkJoinPool(this.threads);
+	}
+
+	/**
+	 * Selector with every engine of this project registered, with
+	 * calibration figures measured on one core
+	 *
+	 * @param threads
+	 *            : int - threads available to the engines
+	 * @return : Selector - the selector
+	 */
+	public static Selector standard(int threads) {
+		Selector ret = new Selector(threads);
+		for (Engine e : Engines.all()) {
+			ret.register(e, Engines.prior(e.name()));
+		}
+		return ret;
+	}
+
+	/**
+	 * add an engine, replacing any engine of the same name
+	 *
+	 * @param e
+	 *            : Engine - the engine
+	 * @param nanosPerWork
+	 *            : double - initial calibration, nanoseconds per unit of work
+	 */
+	public synchronized void register(Engine e, double nanosPerWork) {
+		for (int i = 0; i < registry.size(); i++) {
+			if (registry.get(i).engine.name().equals(e.name())) {
+				registry.set(i, new Entry(e, nanosPerWork));
+				return;
+			}
+		}
+		registry.add(new Entry(e, nanosPerWork));
+	}
+
+	/**
+	 * cheapest engine for a query
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @param shape
+	 *            : int - DEF.QUERY_* shape of the query
+	 * @param zeroCycleSensitive
+	 *            : boolean - true if zero weight cycles must be reported
+	 * @param queries
+	 *            : int - number of sources (or pairs)
+	 * @return : Engine - the engine with the least predicted time
+	 * @throws IllegalArgumentException
+	 *             if no engine accepts the query
+	 */
+	public synchronized Engine select(CSRGraph g, int shape,
+			boolean zeroCycleSensitive, int queries) {
+		return best(g, shape, zeroCycleSensitive, queries, null).engine;
+	}
+
+	/**
+	 * answer a query with the cheapest engine, record the decision and
+	 * update the calibration of the engine with the time it took
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @param q
+	 *            : Query - query to answer
+	 * @return : boolean - false if a negative (or non-positive) cycle was
+	 *         found, true otherwise
+	 * @throws IOException
+	 *             if the row sink of the query fails
+	 */
+	public synchronized boolean run(CSRGraph g, Query q) throws IOException {
+		StringBuilder candidates = new StringBuilder();
+		Entry best = best(g, q.shape, q.zeroCycleSensitive, q.size(),
+				candidates);
+		GraphProfile p = g.profile();
+		double work = best.engine.work(g, p, q.shape, q.size(), threads);
+		long start = System.nanoTime();
+		boolean ret = best.engine.run(g, q, pool, threads);
+		long actual = System.nanoTime() - start;
+		log.add(new Decision(best.engine.name(), q.shape, q.size(),
+				(long) (work * best.nanosPerWork), actual, candidates
+						.toString()));
+		if (work > 0) {
+			best.learn(actual / work);
+		}
+		return ret;
+	}
+
+	/**
+	 * measure every engine accepting a shape of query on a sample graph and
+	 * replace its calibration with the result. After an untimed run, the
+	 * fastest of CALIBRATION_RUNS runs is taken, which leaves JIT compilation
+	 * (and the index of a point to point engine) out of the figure.
+	 *
+	 * @param g
+	 *            : CSRGraph - sample graph, like the graphs of the workload
+	 * @param shape
+	 *            : int - DEF.QUERY_* shape of the query
+	 * @param zeroCycleSensitive
+	 *            : boolean - true if zero weight cycles must be reported
+	 * @param queries
+	 *            : int - sources (or pairs) of the sample queries
+	 * @param seed
+	 *            : long - seed of the random sources
+	 * @throws IOException
+	 */
+	public synchronized void calibrate(CSRGraph g, int shape,
+			boolean zeroCycleSensitive, int queries, long seed)
+			throws IOException {
+		GraphProfile p = g.profile();
+		for (Entry e : registry) {
+			if (!e.engine.accepts(p, shape, zeroCycleSensitive)) {
+				continue;
+			}
+			// an untimed run first, so the timed ones run compiled code
+			e.engine.run(g, randomQuery(g, shape, zeroCycleSensitive,
+					queries, seed, null), pool, threads);
+			double work = e.engine.work(g, p, shape, queries, threads);
+			long actual = Long.MAX_VALUE;
+			for (int r = 1; r <= CALIBRATION_RUNS; r++) {
+				Query q = randomQuery(g, shape, zeroCycleSensitive, queries,
+						seed + r, null);
+				long start = System.nanoTime();
+				e.engine.run(g, q, pool, threads);
+				actual = Math.min(actual, System.nanoTime() - start);
+			}
+			if (work > 0) {
+				e.nanosPerWork = actual / work;
+				e.samples = 1;
+			}
+		}
+	}
+
+	/** decisions made so far, oldest first */
+	public synchronized List<Decision> decisions() {
+		return Collections.unmodifiableList(new ArrayList<Decision>(log));
+	}
+
+	/**
+	 * print the decisions and the calibration of every engine
+	 *
+	 * @param out
+	 *            : PrintStream - output
+	 */
+	public synchronized void printLog(PrintStream out) {
+		for (Decision d : log) {
+			out.println(d);
+		}
+		for (Entry e : registry) {
+			out.println(e.engine.name() + ": "
+					+ String.format("%.3f", e.nanosPerWork) + " ns per work, "
+					+ e.samples + " samples");
+		}
+	}
+
+	/**
+	 * save the calibration, one line "name=nanosPerWork" per engine
+	 *
+	 * @param file
+	 *            : File - output file
+	 * @throws IOException
+	 */
+	public synchronized void saveCalibration(File file) throws IOException {
+		Properties props = new Properties();
+		for (Entry e : registry) {
+			props.setProperty(e.engine.name(), Double.toString(e.nanosPerWork));
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			props.store(out, "Selector calibration, nanoseconds per work");
+		}
+	}
+
+	/**
+	 * load a calibration saved by saveCalibration, engines missing from the
+	 * file keep their figure
+	 *
+	 * @param file
+	 *            : File - calibration file
+	 * @throws IOException
+	 */
+	public synchronized void loadCalibration(File file) throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			props.load(in);
+		}
+		for (Entry e : registry) {
+			String value = props.getProperty(e.engine.name());
+			if (value != null) {
+				e.nanosPerWork = Double.parseDouble(value);
+				e.samples = 1;
+			}
+		}
+	}
+
+	/**
+	 * find the accepting engine of least predicted time
+	 *
+	 * @param candidates
+	 *            : StringBuilder - if not null, receives the prediction of
+	 *            every accepting engine
+	 */
+	private Entry best(CSRGraph g, int shape, boolean zeroCycleSensitive,
+			int queries, StringBuilder candidates) {
+		GraphProfile p = g.profile();
+		Entry best = null;
+		double bestNanos = Double.POSITIVE_INFINITY;
+		for (Entry e : registry) {
+			if (!e.engine.accepts(p, shape, zeroCycleSensitive)) {
+				continue;
+			}
+			double nanos = e.engine.work(g, p, shape, queries, threads)
+					* e.nanosPerWork;
+			if (candidates != null) {
+				if (candidates.length() > 0) {
+					candidates.append(", ");
+				}
+				candidates.append(e.engine.name()).append(' ')
+						.append((long) (nanos / 1000000)).append(" ms");
+			}
+			if (nanos < bestNanos) {
+				best = e;
+				bestNanos = nanos;
+			}
+		}
+		if (best == null) {
+			throw new IllegalArgumentException("No engine for "
+					+ shapeName(shape) + " queries on " + p);
+		}
+		return best;
+	}
+
+	/**
+	 * query of random sources (and targets), rows summed into a checksum
+	 */
+	private static Query randomQuery(CSRGraph g, int shape,
+			boolean zeroCycleSensitive, int queries, long seed,
+			final AtomicLong checksum) {
+		Random random = new Random(seed);
+		int[] sources = new int[shape == DEF.QUERY_SINGLE_SOURCE ? 1
+				: queries];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = 1 + random.nextInt(g.numNodes);
+		}
+		if (shape == DEF.QUERY_POINT_TO_POINT) {
+			int[] targets = new int[queries];
+			for (int i = 0; i < queries; i++) {
+				targets[i] = 1 + random.nextInt(g.numNodes);
+			}
+			return Query.pointToPoint(sources, targets, zeroCycleSensitive);
+		}
+		Johnson.RowSink sink = new Johnson.RowSink() {
+			@Override
+			public void row(int index, int source, int[] distance) {
+				if (checksum == null) {
+					return;
+				}
+				long sum = 0;
+				for (int v = 1; v < distance.length; v++) {
+					if (distance[v] != SearchState.INFINITY) {
+						sum += distance[v];
+					}
+				}
+				checksum.addAndGet(sum);
+			}
+		};
+		return shape == DEF.QUERY_SINGLE_SOURCE ? Query.singleSource(
+				sources[0], zeroCycleSensitive, sink) : Query.manyToMany(
+				sources, zeroCycleSensitive, sink);
+	}
+
+	static String shapeName(int shape) {
+		switch (shape) {
+		case DEF.QUERY_SINGLE_SOURCE:
+			return "single source";
+		case DEF.QUERY_POINT_TO_POINT:
+			return "point to point";
+		case DEF.QUERY_MANY_TO_MANY:
+			return "many to many";
+		default:
+			return "shape " + shape;
+		}
+	}
+
+	private static int parseShape(String s) {
+		if (s.equals("ss")) {
+			return DEF.QUERY_SINGLE_SOURCE;
+		} else if (s.equals("p2p")) {
+			return DEF.QUERY_POINT_TO_POINT;
+		} else if (s.equals("m2m")) {
+			return DEF.QUERY_MANY_TO_MANY;
+		}
+		throw new IllegalArgumentException("Unknown query shape: " + s);
+	}
+
+	/**
+	 * Driver function answering random queries through the selector, or
+	 * calibrating every engine on a graph
+	 *
+	 * @param args
+	 *            argument - input graph file or snapshot, query shape (ss,
+	 *            p2p or m2m), number of queries, optional calibration file
+	 *            (loaded if it exists, saved with what the runs taught);
+	 *            "calibrate" as the shape measures every engine on the graph
+	 *            for all three shapes instead and saves the result
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: java Selector <graph file or snapshot> <ss|p2p|m2m> [queries] [calibration file]");
+			System.out.println("       java Selector <graph file or snapshot> calibrate <queries> <calibration file>");
+			return;
+		}
+		File file = new File(args[0]);
+		CSRGraph g = GraphSnapshot.isSnapshot(file) ? GraphSnapshot.load(file)
+				: EdgeListReader.readCSRGraph(file);
+		int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		File calibration = args.length > 3 ? new File(args[3]) : null;
+		Selector selector = standard(Runtime.getRuntime()
+				.availableProcessors());
+		if (calibration != null && calibration.exists()) {
+			selector.loadCalibration(calibration);
+		}
+		System.out.println(g.profile());
+
+		if (args[1].equals("calibrate")) {
+			for (int shape = DEF.QUERY_SINGLE_SOURCE; shape <= DEF.QUERY_MANY_TO_MANY; shape++) {
+				selector.calibrate(g, shape, false, queries, 1);
+			}
+		} else {
+			int shape = parseShape(args[1]);
+			// the same queries twice: the second run sees what the first
+			// one taught, and any index the first one built
+			for (int r = 0; r < 2; r++) {
+				AtomicLong checksum = new AtomicLong();
+				Query q = randomQuery(g, shape, false, queries, 1, checksum);
+				boolean noCycle = selector.run(g, q);
+				if (shape == DEF.QUERY_POINT_TO_POINT) {
+					for (int d : q.distance) {
+						if (d != SearchState.INFINITY) {
+							checksum.addAndGet(d);
+						}
+					}
+				}
+				System.out.println(noCycle ? "checksum " + checksum.get()
+						: DEF.ERROR_LEVEL1);
+			}
+		}
+		selector.printLog(System.out);
+		if (calibration != null) {
+			selector.saveCalibration(calibration);
+		}
+	}
+}
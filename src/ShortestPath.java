@@ -1,41 +1,58 @@
 /**
  * Shortest path algorithm implementation
- * 
+ *
  * @author Peng Li
  * @author Nan Zhang
  */
+import graph.CSRGraph;
 import graph.Edge;
 import graph.Graph;
+import graph.GraphProfile;
 import graph.Vertex;
 
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
-import java.util.Set;
 
-import pq.IndexedHeap;
+import pq.DialQueue;
+import pq.IntDaryHeap;
+import pq.IntIndexedHeap;
+import pq.IntPQ;
+import pq.IntPairHeap;
+import pq.IntPairingHeap;
+import pq.IntQuaternaryHeap;
+import pq.RadixHeap;
 
 public class ShortestPath {
 
 	/**
 	 * check if input graph type falls into the following categories: uniform
-	 * positive edge weight, DAG, graph with only non-negative (or positive)
-	 * weights and others.
-	 * 
+	 * positive edge weight, DAG, graph with only non-negative weights and
+	 * others. Zero weight edges keep a graph out of DEF.OTHER unless they
+	 * close a cycle and zero weight cycles are illegal. Only the part of the
+	 * graph reachable from the source is examined, the rest cannot change any
+	 * distance.
+	 *
 	 * @param g
 	 *            : Graph - input graph
+	 * @param s
+	 *            : Vertex - source vertex
 	 * @param zeroCycleSensitive
-	 *            : boolean - indicator if zero edge weight graph should fall
-	 *            into DEF.OTHER category
+	 *            : boolean - indicator if a graph with a zero weight cycle
+	 *            should fall into DEF.OTHER category
 	 * @return : int - graph type indicator as defined in DEF.java
 	 */
-	public static int sp_categorizer(Graph g, boolean zeroCycleSensitive) {
-		if (hasUniformEdgeWeight(g)) {
+	public static int sp_categorizer(Graph g, Vertex s,
+			boolean zeroCycleSensitive) {
+		// one cached sweep from the source gives every answer, and the order
+		// for sp_dag
+		GraphProfile profile = g.profile(s);
+		if (profile.isUniform() && profile.isNonNegative(zeroCycleSensitive)) {
 			return DEF.UNIFORM_WEIGHT;
-		} else if (!hasCycle(g)) {
+		} else if (profile.isAcyclic()) {
 			return DEF.DAG;
-		} else if (!hasNegEdgeWeight(g, zeroCycleSensitive)) {
+		} else if (profile.isNonNegative(zeroCycleSensitive)) {
 			return DEF.NON_NEG_WEIGHT;
 		} else {
 			return DEF.OTHER;
@@ -44,46 +61,35 @@ public class ShortestPath {
 
 	/**
 	 * Breadth first search algorithm for shortest path
-	 * 
+	 *
 	 * @param g
-	 *            : Graph - an uniform positive edge weight graph
+	 *            : Graph - a graph whose edges reachable from s have one
+	 *            uniform non-negative weight
 	 * @param s
 	 *            : Vertex - source Vertex
+	 * @param st
+	 *            : SearchState - output, search data of this query
 	 */
-	public static void sp_bfs(Graph g, Vertex s) {
-		// find the uniform positive edge weight
-		int edgeWeight = Integer.MIN_VALUE;
-		boolean initialized = false;
-		for (Vertex v : g) {
-			for (Edge e : v.Adj) {
-				if (edgeWeight == Integer.MIN_VALUE) {
-					edgeWeight = e.Weight;
-					initialized = true;
-				}
-				if (initialized) {
-					break;
-				}
-			}
-			if (initialized) {
-				break;
-			}
-		}
+	public static void sp_bfs(Graph g, Vertex s, SearchState st) {
+		// the uniform edge weight of the part reachable from s, the profile
+		// the categorizer picked BFS from
+		int edgeWeight = g.profile(s).minWeight;
 
-		initGraph(g);
+		st.reset();
 		Queue<Vertex> visited = new LinkedList<Vertex>();
 		visited.offer(s);
-		s.distance = 0;
-		s.seen = true;
+		st.setDistance(s.name, 0);
+		st.setSeen(s.name, true);
 
 		while (!visited.isEmpty()) {
 			Vertex u = visited.poll();
 			for (Edge e : u.Adj) {
 				Vertex v = e.otherEnd(u);
-				if (!v.seen) {
-					v.parent = u;
+				if (!st.isSeen(v.name)) {
+					st.setParent(v.name, u.name);
 					// update shortest path
-					v.distance = u.distance + edgeWeight;
-					v.seen = true;
+					st.setDistance(v.name, st.getDistance(u.name) + edgeWeight);
+					st.setSeen(v.name, true);
 					visited.offer(v);
 				}
 			}
@@ -92,33 +98,37 @@ public class ShortestPath {
 
 	/**
 	 * shortest path implementation for DAG
-	 * 
+	 *
 	 * @param g
-	 *            : Graph - a DAG
+	 *            : Graph - a graph whose part reachable from s is a DAG
 	 * @param s
 	 *            : Vertex - source Vertex
 	 * @param zeroCycleSensitive
 	 *            : boolean - indicator if we perform relax operation if equal
 	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
 	 */
-	public static void sp_dag(Graph g, Vertex s, boolean zeroCycleSensitive) {
-		List<Vertex> topOrder = topSort(g);
-		initGraph(g);
-		s.distance = 0;
-
-		// relax outgoing edges for vertices in the topological sort order
-		// NOTE: vertices appear prior to source will not be reachable
-		for (Vertex u : topOrder) {
+	public static void sp_dag(Graph g, Vertex s, boolean zeroCycleSensitive,
+			SearchState st) {
+		int[] topOrder = g.profile(s).topologicalOrder();
+		st.reset();
+		st.setDistance(s.name, 0);
+
+		// relax outgoing edges for vertices in the topological sort order of
+		// the part reachable from source, which starts at source
+		for (int name : topOrder) {
+			Vertex u = g.verts.get(name);
 			for (Edge e : u.Adj) {
 				Vertex v = e.otherEnd(u);
-				relax(u, v, e, zeroCycleSensitive);
+				relax(u.name, v.name, e.Weight, zeroCycleSensitive, st);
 			}
 		}
 	}
 
 	/**
 	 * Dijkstra shortest path algorithm implementation
-	 * 
+	 *
 	 * @param g
 	 *            : Graph - a graph with only non-negative (or positive) weight
 	 *            edge
@@ -127,26 +137,94 @@ public class ShortestPath {
 	 * @param zeroCycleSensitive
 	 *            : boolean - indicator if we perform relax operation if equal
 	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
 	 */
-	public static void sp_dijkstra(Graph g, Vertex s, boolean zeroCycleSensitive) {
-		initGraph(g);
-		s.distance = 0;
-		Vertex comp = new Vertex(0);
-		IndexedHeap<Vertex> pq = new IndexedHeap<Vertex>(g.numNodes, comp);
-		for (Vertex v : g) {
-			pq.insert(v);
-		}
+	public static void sp_dijkstra(Graph g, Vertex s,
+			boolean zeroCycleSensitive, SearchState st) {
+		sp_dijkstra(g, s, zeroCycleSensitive, st, new IntIndexedHeap(
+				g.numNodes));
+	}
+
+	/**
+	 * Dijkstra shortest path algorithm with Dial's bucket queue, for graphs
+	 * whose edge weights are small non-negative integers
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative (or positive) weight
+	 *            edge
+	 * @param s
+	 *            : Vertex - source Vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 */
+	public static void sp_dial(Graph g, Vertex s, boolean zeroCycleSensitive,
+			SearchState st) {
+		sp_dijkstra(g, s, zeroCycleSensitive, st, new DialQueue(g.numNodes,
+				maxEdgeWeight(g, s)));
+	}
+
+	/**
+	 * Dijkstra shortest path algorithm with a radix heap
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative (or positive) weight
+	 *            edge
+	 * @param s
+	 *            : Vertex - source Vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 */
+	public static void sp_radix(Graph g, Vertex s, boolean zeroCycleSensitive,
+			SearchState st) {
+		sp_dijkstra(g, s, zeroCycleSensitive, st, new RadixHeap(g.numNodes));
+	}
+
+	/**
+	 * Dijkstra shortest path algorithm implementation over a given priority
+	 * queue of vertex names
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative (or positive) weight
+	 *            edge
+	 * @param s
+	 *            : Vertex - source Vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 * @param pq
+	 *            : IntPQ - empty priority queue with capacity g.numNodes
+	 */
+	public static void sp_dijkstra(Graph g, Vertex s,
+			boolean zeroCycleSensitive, SearchState st, IntPQ pq) {
+		st.reset();
+		st.setDistance(s.name, 0);
+		// vertices are keyed by name, with their distance as priority. A
+		// vertex enters the queue only when it is first discovered.
+		pq.insert(s.name, 0);
 
 		// relax outgoing edges for the vertex with shortest distance from
 		// source, using a indexed heap
 		while (!pq.isEmpty()) {
-			Vertex u = pq.deleteMin();
-			u.seen = true;
+			Vertex u = g.verts.get(pq.deleteMin());
+			st.setSeen(u.name, true);
 			for (Edge e : u.Adj) {
 				Vertex v = e.otherEnd(u);
-				if (!v.seen) {
-					if (relax(u, v, e, zeroCycleSensitive)) {
-						pq.decreaseKey(v);
+				if (!st.isSeen(v.name)) {
+					if (relax(u.name, v.name, e.Weight, zeroCycleSensitive, st)) {
+						if (pq.contains(v.name)) {
+							pq.decreaseKey(v.name, st.getDistance(v.name));
+						} else {
+							pq.insert(v.name, st.getDistance(v.name));
+						}
 					}
 				}
 			}
@@ -154,8 +232,52 @@ public class ShortestPath {
 	}
 
 	/**
-	 * Bellman-Ford shortest path algorithm
-	 * 
+	 * Dijkstra shortest path algorithm with lazy deletion: a vertex is pushed
+	 * again whenever its distance improves instead of having its key
+	 * decreased, and outdated entries are skipped when popped
+	 *
+	 * @param g
+	 *            : Graph - a graph with only non-negative (or positive) weight
+	 *            edge
+	 * @param s
+	 *            : Vertex - source Vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 */
+	public static void sp_dijkstra_lazy(Graph g, Vertex s,
+			boolean zeroCycleSensitive, SearchState st) {
+		st.reset();
+		st.setDistance(s.name, 0);
+		IntPairHeap pq = new IntPairHeap(DEF.LAZY_HEAP_CAPACITY);
+		pq.insert(s.name, 0);
+
+		while (!pq.isEmpty()) {
+			Vertex u = g.verts.get(pq.deleteMin());
+			if (st.isSeen(u.name)) {
+				continue; // outdated entry of a settled vertex
+			}
+			st.setSeen(u.name, true);
+			for (Edge e : u.Adj) {
+				Vertex v = e.otherEnd(u);
+				if (!st.isSeen(v.name)) {
+					if (relax(u.name, v.name, e.Weight, zeroCycleSensitive, st)) {
+						pq.insert(v.name, st.getDistance(v.name));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Bellman-Ford shortest path algorithm with Tarjan's subtree disassembly
+	 * (see ParentTree): a queued vertex whose ancestor improved is skipped,
+	 * and a non-positive cycle is reported by the relaxation that closes it.
+	 * The parent edge of every vertex is kept, so findNonPosCycle walks only
+	 * the cycle.
+	 *
 	 * @param g
 	 *            : Graph - a graph (possibly with non-positive or negative
 	 *            cycle)
@@ -164,31 +286,45 @@ public class ShortestPath {
 	 * @param zeroCycleSensitive
 	 *            : boolean - indicator if we perform relax operation if equal
 	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
 	 * @return : boolean - true if no non-positive or negative cycle is found;
 	 *         false otherwise
 	 */
-	public static boolean sp_bf(Graph g, Vertex s, boolean zeroCycleSensitive) {
-		initGraph(g);
-		s.distance = 0;
-		s.seen = true;
+	public static boolean sp_bf(Graph g, Vertex s, boolean zeroCycleSensitive,
+			SearchState st) {
+		st.reset();
+		st.setDistance(s.name, 0);
+		st.setSeen(s.name, true);
+		ParentTree tree = new ParentTree(g.numNodes);
+		tree.init(s.name);
 		Queue<Vertex> queue = new LinkedList<Vertex>();
 		queue.offer(s);
 
 		while (!queue.isEmpty()) {
 			Vertex u = queue.poll();
-			u.seen = false;
-			u.count++;
-			if (u.count >= g.numNodes) {
-				return false; // negative cycle
+			st.setSeen(u.name, false);
+			// u left the tree after it was queued, it will improve again
+			if (!tree.contains(u.name)) {
+				continue;
 			}
 
 			for (Edge e : u.Adj) {
 				Vertex v = e.otherEnd(u);
-				if (relax(u, v, e, zeroCycleSensitive)) {
-					if (!v.seen) {
-						queue.offer(v);
-						v.seen = true;
-					}
+				if (!improves(u.name, v.name, e.Weight, zeroCycleSensitive, st,
+						tree)) {
+					continue;
+				}
+				st.setParent(v.name, u.name);
+				st.setParentEdge(v.name, e);
+				if (!tree.attach(u.name, v.name)) {
+					st.setCycleVertex(v.name);
+					return false; // negative cycle
+				}
+				st.setDistance(v.name, st.getDistance(u.name) + e.Weight);
+				if (!st.isSeen(v.name)) {
+					queue.offer(v);
+					st.setSeen(v.name, true);
 				}
 			}
 		}
@@ -197,227 +333,516 @@ public class ShortestPath {
 
 	/**
 	 * find one (anyone) non-positive cycle in a graph
-	 * 
+	 *
 	 * @param g
 	 *            : Graph - a graph contains at least one non-positive cycle
+	 * @param st
+	 *            : SearchState - search data of the failed Bellman-Ford run
 	 * @return : List<Edge> a non-positive cycle of the input graph
 	 */
-	public static List<Edge> findNonPosCycle(Graph g) {
-		// find a vertex whose shortest path's been updated more than |V| times
-		// a non-negative cycle will connect to this vertex
-		Vertex start = null;
-		for (Vertex u : g) {
-			if (u.count >= g.numNodes) {
-				start = u;
-				break;
-			}
-		}
-
-		// walk backwards from the start vertex using parent pointer, keep all
-		// predecessor in a HashSet. If a vertex appears in the HashSet again,
-		// then it is part of a non-negative cycle.
-		Set<Vertex> preDecesor = new HashSet<Vertex>();
-		preDecesor.add(start);
-		Vertex current = start.parent;
-		while (!preDecesor.contains(current)) {
-			preDecesor.add(current);
-			current = current.parent;
-		}
+	public static List<Edge> findNonPosCycle(Graph g, SearchState st) {
+		// the failed run left a vertex on the cycle, its parents lead around
+		// the cycle back to it
+		int start = st.getCycleVertex();
 		LinkedList<Edge> ret = new LinkedList<Edge>();
-		start = current;
-		// walk backwards from the vertex found in previous step, a non-positive
-		// cycle will be found
+		int current = start;
 		do {
-			for (Edge e : current.revAdj) {
-				if (e.otherEnd(current) == current.parent) {
-					ret.addFirst(e);
-					current = current.parent;
-					break;
+			int parent = st.getParent(current);
+			Edge e = st.getParentEdge(current);
+			if (e == null) {
+				// runs on a CSR graph only keep the parent vertex; the
+				// lightest parallel edge weighs at most the one the run used,
+				// so the cycle stays non-positive
+				Vertex v = g.verts.get(current);
+				for (Edge f : v.revAdj) {
+					if (f.otherEnd(v).name == parent
+							&& (e == null || f.Weight < e.Weight)) {
+						e = f;
+					}
 				}
 			}
+			ret.addFirst(e);
+			current = parent;
 		} while (current != start);
 		return ret;
 	}
 
 	/**
-	 * count the number of shortest path for each vertex reachable from source
-	 * 
+	 * count the number of shortest path for each vertex reachable from
+	 * source, using only edges that are part of a shortest path in the
+	 * original graph. These edges form a DAG, which is processed in
+	 * topological order.
+	 *
 	 * @param g
 	 *            : Graph - a graph that has been process by shortest path
 	 *            algorithm
-	 * @return : Graph - a DAG that contains the same vertices as the original
-	 *         graph, but only edges that is part of a shortest path in the
-	 *         original graph
+	 * @param st
+	 *            : SearchState - search data of that algorithm, the number of
+	 *            shortest path of each vertex is stored into it
 	 */
-	public static Graph countSPPath(Graph g) {
-		Graph d = createSPDAG(g);
-		List<Vertex> topOrder = topSort(d);
-		Vertex source = findSource(d);
-		source.spCount = 1;
+	public static void countSPPath(Graph g, SearchState st) {
+		Vertex source = findSource(g);
+		// in degree of each vertex in the shortest path DAG
+		int[] unvisitedEdge = new int[g.numNodes + 1];
+		Queue<Vertex> zeroDegreeVertices = new LinkedList<Vertex>();
+		for (Vertex v : g) {
+			if (st.getDistance(v.name) == SearchState.INFINITY) {
+				continue;
+			}
+			for (Edge e : v.revAdj) {
+				if (isTight(e.otherEnd(v).name, v.name, e.Weight, st)) {
+					unvisitedEdge[v.name]++;
+				}
+			}
+			if (unvisitedEdge[v.name] == 0) {
+				zeroDegreeVertices.offer(v);
+			}
+		}
+		st.setSpCount(source.name, 1);
 
 		// process the vertex in topological order to update the number of path
 		// for each vertex reachable from source
-		for (Vertex u : topOrder) {
+		while (!zeroDegreeVertices.isEmpty()) {
+			Vertex u = zeroDegreeVertices.poll();
 			for (Edge e : u.Adj) {
 				Vertex v = e.otherEnd(u);
-				v.spCount += u.spCount;
+				if (isTight(u.name, v.name, e.Weight, st)) {
+					st.setSpCount(v.name,
+							st.getSpCount(v.name) + st.getSpCount(u.name));
+					unvisitedEdge[v.name]--;
+					if (unvisitedEdge[v.name] == 0) {
+						zeroDegreeVertices.offer(v);
+					}
+				}
 			}
 		}
-		return d;
 	}
 
 	/**
-	 * check if a graph has uniform positive edge weight
-	 * 
+	 * Breadth first search algorithm for shortest path on a CSR graph
+	 *
 	 * @param g
-	 *            : Graph - input graph
-	 * @return : boolean - true if input graph has uniform positive edge weight,
-	 *         false otherwise
+	 *            : CSRGraph - an uniform positive edge weight graph
+	 * @param s
+	 *            : int - source vertex
+	 * @param st
+	 *            : SearchState - output, search data of this query
 	 */
-	private static boolean hasUniformEdgeWeight(Graph g) {
-		int uniformWeight = Integer.MIN_VALUE;
-		boolean initialized = false;
-		// find edge weight for any edge
-		for (Vertex v : g) {
-			for (Edge e : v.Adj) {
-				uniformWeight = (uniformWeight == Integer.MIN_VALUE) ? e.Weight
-						: uniformWeight;
-				if (uniformWeight != Integer.MIN_VALUE) {
-					initialized = true;
-					break;
+	public static void sp_bfs(CSRGraph g, int s, SearchState st) {
+		// any arc carries the uniform positive edge weight
+		int edgeWeight = g.numEdges > 0 ? g.arcWeight(0) : 0;
+
+		st.reset();
+		int[] queue = new int[g.numNodes];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = s;
+		st.setDistance(s, 0);
+		st.setSeen(s, true);
+
+		while (head < tail) {
+			int u = queue[head++];
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				int v = g.arcHead(a);
+				if (!st.isSeen(v)) {
+					st.setParent(v, u);
+					// update shortest path
+					st.setDistance(v, st.getDistance(u) + edgeWeight);
+					st.setSeen(v, true);
+					queue[tail++] = v;
 				}
 			}
-			if (initialized) {
-				break;
-			}
 		}
+	}
 
-		if (uniformWeight < 0) {
-			return false;
+	/**
+	 * shortest path implementation for DAG on a CSR graph
+	 *
+	 * @param g
+	 *            : CSRGraph - a DAG
+	 * @param s
+	 *            : int - source vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 */
+	public static void sp_dag(CSRGraph g, int s, boolean zeroCycleSensitive,
+			SearchState st) {
+		int[] topOrder = g.profile().topologicalOrder();
+		st.reset();
+		st.setDistance(s, 0);
+
+		// relax outgoing arcs for vertices in the topological sort order
+		for (int u : topOrder) {
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				relax(u, g.arcHead(a), g.arcWeight(a), zeroCycleSensitive, st);
+			}
 		}
+	}
 
-		for (Vertex v : g) {
-			for (Edge e : v.Adj) {
-				if (e.Weight != uniformWeight) {
-					return false;
+	/**
+	 * Dijkstra shortest path algorithm implementation on a CSR graph
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with only non-negative (or positive)
+	 *            weight edge
+	 * @param s
+	 *            : int - source vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 */
+	public static void sp_dijkstra(CSRGraph g, int s,
+			boolean zeroCycleSensitive, SearchState st) {
+		sp_dijkstra(g, s, zeroCycleSensitive, st, new IntIndexedHeap(
+				g.numNodes));
+	}
+
+	/**
+	 * Dijkstra shortest path algorithm on a CSR graph over a given priority
+	 * queue of vertices
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph with only non-negative (or positive)
+	 *            weight edge
+	 * @param s
+	 *            : int - source vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 * @param pq
+	 *            : IntPQ - empty priority queue with capacity g.numNodes
+	 */
+	public static void sp_dijkstra(CSRGraph g, int s,
+			boolean zeroCycleSensitive, SearchState st, IntPQ pq) {
+		st.reset();
+		st.setDistance(s, 0);
+		// a vertex enters the queue only when it is first discovered
+		pq.insert(s, 0);
+
+		// relax outgoing arcs for the vertex with shortest distance from
+		// source, using a indexed heap
+		while (!pq.isEmpty()) {
+			int u = pq.deleteMin();
+			st.setSeen(u, true);
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				int v = g.arcHead(a);
+				if (!st.isSeen(v)) {
+					if (relax(u, v, g.arcWeight(a), zeroCycleSensitive, st)) {
+						if (pq.contains(v)) {
+							pq.decreaseKey(v, st.getDistance(v));
+						} else {
+							pq.insert(v, st.getDistance(v));
+						}
+					}
 				}
 			}
 		}
-		return true;
 	}
 
 	/**
-	 * check if a graph has cycle using topological sort
-	 * 
+	 * Dijkstra shortest path algorithm with lazy deletion on a CSR graph
+	 *
 	 * @param g
-	 *            : Graph - input graph
-	 * @return : boolean - true if input graph has cycle, false otherwise
+	 *            : CSRGraph - a graph with only non-negative (or positive)
+	 *            weight edge
+	 * @param s
+	 *            : int - source vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
 	 */
-	private static boolean hasCycle(Graph g) {
-		return topSort(g) == null;
+	public static void sp_dijkstra_lazy(CSRGraph g, int s,
+			boolean zeroCycleSensitive, SearchState st) {
+		st.reset();
+		st.setDistance(s, 0);
+		IntPairHeap pq = new IntPairHeap(DEF.LAZY_HEAP_CAPACITY);
+		pq.insert(s, 0);
+
+		while (!pq.isEmpty()) {
+			int u = pq.deleteMin();
+			if (st.isSeen(u)) {
+				continue; // outdated entry of a settled vertex
+			}
+			st.setSeen(u, true);
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				int v = g.arcHead(a);
+				if (!st.isSeen(v)) {
+					if (relax(u, v, g.arcWeight(a), zeroCycleSensitive, st)) {
+						pq.insert(v, st.getDistance(v));
+					}
+				}
+			}
+		}
 	}
 
 	/**
-	 * topological sort
-	 * 
+	 * Bellman-Ford shortest path algorithm on a CSR graph with Tarjan's
+	 * subtree disassembly, see sp_bf on a Graph
+	 *
 	 * @param g
-	 *            : Graph - input graph
-	 * @return : List<Vertex> - topological order of vertex, null if such order
-	 *         does not exists
+	 *            : CSRGraph - a graph (possibly with non-positive or negative
+	 *            cycle)
+	 * @param s
+	 *            : int - source vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if we perform relax operation if equal
+	 *            shortest path is found
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 * @return : boolean - true if no non-positive or negative cycle is found;
+	 *         false otherwise
 	 */
-	private static List<Vertex> topSort(Graph g) {
-		// array to simulate deletion of edges
-		int[] unvisitedEdge = new int[g.numNodes + 1];
-		Queue<Vertex> zeroDegreeVertices = new LinkedList<Vertex>();
+	public static boolean sp_bf(CSRGraph g, int s, boolean zeroCycleSensitive,
+			SearchState st) {
+		st.reset();
+		ParentTree tree = new ParentTree(g.numNodes);
+		tree.init(s);
+		// circular queue, a vertex is never queued twice at the same time
+		int[] queue = new int[g.numNodes + 1];
+		int head = 0;
+		int size = 0;
+		st.setDistance(s, 0);
+		st.setSeen(s, true);
+		queue[size++] = s;
+
+		while (size > 0) {
+			int u = queue[head];
+			head = (head + 1) % queue.length;
+			size--;
+			st.setSeen(u, false);
+			// u left the tree after it was queued, it will improve again
+			if (!tree.contains(u)) {
+				continue;
+			}
 
-		for (Vertex v : g) {
-			int inDegree = v.revAdj.size();
-			unvisitedEdge[v.name] = inDegree;
-			if (inDegree == 0) {
-				zeroDegreeVertices.offer(v);
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				int v = g.arcHead(a);
+				if (!improves(u, v, g.arcWeight(a), zeroCycleSensitive, st,
+						tree)) {
+					continue;
+				}
+				st.setParent(v, u);
+				if (!tree.attach(u, v)) {
+					st.setCycleVertex(v);
+					return false; // negative cycle
+				}
+				st.setDistance(v, st.getDistance(u) + g.arcWeight(a));
+				if (!st.isSeen(v)) {
+					queue[(head + size) % queue.length] = v;
+					size++;
+					st.setSeen(v, true);
+				}
 			}
 		}
+		return true;
+	}
 
-		List<Vertex> ret = new LinkedList<Vertex>();
-		while (!zeroDegreeVertices.isEmpty()) {
-			Vertex u = zeroDegreeVertices.poll();
-			ret.add(u);
-			for (Edge e : u.Adj) {
-				Vertex v = e.otherEnd(u);
-				unvisitedEdge[v.name]--;
-				if (unvisitedEdge[v.name] == 0) {
-					zeroDegreeVertices.offer(v);
+	/**
+	 * Bellman-Ford shortest path algorithm on a CSR graph by full passes over
+	 * its arcs in tail order, stopping after a pass that changes nothing. A
+	 * tail whose distance did not change since its last scan is skipped. Suits
+	 * dense graphs, where a pass streams through the CSR arrays instead of
+	 * chasing a queue. Same contract as sp_bf: on failure the cycle vertex of
+	 * the search state is on the cycle and the parents lead around it.
+	 *
+	 * @param g
+	 *            : CSRGraph - a graph (possibly with non-positive or negative
+	 *            cycle)
+	 * @param s
+	 *            : int - source vertex
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if a zero weight cycle is reported as
+	 *            well
+	 * @param st
+	 *            : SearchState - output, search data of this query
+	 * @return : boolean - true if no non-positive or negative cycle is found;
+	 *         false otherwise
+	 */
+	public static boolean sp_bf_sweep(CSRGraph g, int s,
+			boolean zeroCycleSensitive, SearchState st) {
+		int n = g.numNodes;
+		int[] distance = new int[n + 1];
+		int[] scanned = new int[n + 1]; // distance at the last scan
+		int[] parent = new int[n + 1];
+		Arrays.fill(distance, SearchState.INFINITY);
+		Arrays.fill(scanned, SearchState.INFINITY);
+		distance[s] = 0;
+
+		int cycleVertex = 0;
+		boolean changed = true;
+		for (int pass = 1; changed; pass++) {
+			changed = false;
+			for (int u = 1; u <= n; u++) {
+				int du = distance[u];
+				if (du == scanned[u]) {
+					continue;
+				}
+				scanned[u] = du;
+				changed = true;
+				for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+					int v = g.arcHead(a);
+					int temp = du + g.arcWeight(a);
+					if (temp < distance[v]) {
+						distance[v] = temp;
+						parent[v] = u;
+					}
+				}
+			}
+			// distances still falling after |V| passes come from a negative
+			// cycle, which shows in the parents sooner or later
+			if (changed && pass > n) {
+				cycleVertex = findParentCycle(parent, n);
+				if (cycleVertex != 0) {
+					break;
 				}
 			}
 		}
+		if (cycleVertex == 0 && zeroCycleSensitive) {
+			cycleVertex = findZeroCycle(g, distance, parent);
+		}
 
-		for (int i = 1; i < unvisitedEdge.length; i++) {
-			if (unvisitedEdge[i] > 0) {
-				return null;
+		st.reset();
+		for (int v = 1; v <= n; v++) {
+			if (distance[v] != SearchState.INFINITY) {
+				st.setDistance(v, distance[v]);
+				st.setParent(v, parent[v]);
 			}
 		}
-		return ret;
+		if (cycleVertex != 0) {
+			st.setCycleVertex(cycleVertex);
+			return false; // negative cycle
+		}
+		return true;
 	}
 
 	/**
-	 * check if a graph has non-positive (or negative) edges
-	 * 
+	 * count the number of shortest path for each vertex reachable from source
+	 * on a CSR graph, using only arcs that are part of a shortest path
+	 *
 	 * @param g
-	 *            : Graph - input graph
-	 * @param zeroCycleSensitive
-	 *            : boolean - indicator if zero weight edge needs to be checked
-	 * @return : boolean - true if input graph has non-positive (or negative)
-	 *         edges, false otherwise
+	 *            : CSRGraph - a graph that has been process by shortest path
+	 *            algorithm
+	 * @param s
+	 *            : int - source vertex
+	 * @param st
+	 *            : SearchState - search data of that algorithm, the number of
+	 *            shortest path of each vertex is stored into it
 	 */
-	private static boolean hasNegEdgeWeight(Graph g, boolean zeroCycleSensitive) {
-		for (Vertex v : g) {
-			for (Edge e : v.Adj) {
-				if (e.Weight < 0 || (zeroCycleSensitive && e.Weight == 0)) {
-					return true;
+	public static void countSPPath(CSRGraph g, int s, SearchState st) {
+		// in degree of each vertex in the shortest path DAG
+		int[] unvisitedEdge = new int[g.numNodes + 1];
+		int[] queue = new int[g.numNodes];
+		int head = 0;
+		int tail = 0;
+		for (int v = 1; v <= g.numNodes; v++) {
+			if (st.getDistance(v) == SearchState.INFINITY) {
+				continue;
+			}
+			for (int r = g.inBegin(v); r < g.inEnd(v); r++) {
+				if (isTight(g.revArcTail(r), v, g.revArcWeight(r), st)) {
+					unvisitedEdge[v]++;
 				}
 			}
+			if (unvisitedEdge[v] == 0) {
+				queue[tail++] = v;
+			}
+		}
+		st.setSpCount(s, 1);
+
+		// process the vertex in topological order of the shortest path DAG
+		while (head < tail) {
+			int u = queue[head++];
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				int v = g.arcHead(a);
+				if (isTight(u, v, g.arcWeight(a), st)) {
+					st.setSpCount(v, st.getSpCount(v) + st.getSpCount(u));
+					unvisitedEdge[v]--;
+					if (unvisitedEdge[v] == 0) {
+						queue[tail++] = v;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * create an empty priority queue for Dijkstra
+	 *
+	 * @param queueType
+	 *            : int - queue implementation as defined in DEF.java
+	 * @param n
+	 *            : int - number of vertices
+	 * @param maxWeight
+	 *            : int - largest edge weight, used by the bucket queue
+	 * @return : IntPQ - empty queue for vertices 1..n
+	 */
+	public static IntPQ createQueue(int queueType, int n, int maxWeight) {
+		switch (queueType) {
+		case DEF.QUEUE_BINARY:
+			return new IntIndexedHeap(n);
+		case DEF.QUEUE_DARY:
+			return new IntDaryHeap(n, DEF.DARY_ARITY);
+		case DEF.QUEUE_PAIRING:
+			return new IntPairingHeap(n);
+		case DEF.QUEUE_QUATERNARY:
+			return new IntQuaternaryHeap(n);
+		case DEF.QUEUE_DIAL:
+			return new DialQueue(n, maxWeight);
+		case DEF.QUEUE_RADIX:
+			return new RadixHeap(n);
+		default:
+			throw new IllegalArgumentException("Unknown queue type: "
+					+ queueType);
 		}
-		return false;
 	}
 
 	/**
-	 * helper method to initiate a graph
-	 * 
+	 * find the largest edge weight reachable from a source
+	 *
 	 * @param g
 	 *            : Graph - input graph
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @return : int - largest weight of an edge reachable from s, 0 if there
+	 *         is none
 	 */
-	private static void initGraph(Graph g) {
-		for (Vertex v : g) {
-			v.distance = Integer.MAX_VALUE;
-			v.parent = null;
-			v.seen = false;
-			v.count = 0;
-			for (Edge e : v.Adj) {
-				e.seen = false;
-			}
-		}
+	static int maxEdgeWeight(Graph g, Vertex s) {
+		return Math.max(0, g.profile(s).maxWeight);
 	}
 
 	/**
 	 * helper method for relaxing edges in shortest path algorithm
-	 * 
+	 *
 	 * @param u
-	 *            : Vertex - from vertex
+	 *            : int - from vertex
 	 * @param v
-	 *            : Vertex - to vertex
-	 * @param e
-	 *            : Edge - edge needs to be relaxed
+	 *            : int - to vertex
+	 * @param w
+	 *            : int - weight of the edge
 	 * @param zeroCycleSensitive
 	 *            : boolean - indicator if equal length needs to be relaxed
+	 * @param st
+	 *            : SearchState - search data of the running query
 	 * @return : boolean - true if edge is relaxed, false otherwise
 	 */
-	private static boolean relax(Vertex u, Vertex v, Edge e,
-			boolean zeroCycleSensitive) {
-		if (u.distance != Integer.MAX_VALUE) {
-			int temp = u.distance + e.Weight;
-			if (v.distance > temp || (zeroCycleSensitive && v.distance == temp)) {
-				v.distance = temp;
-				v.parent = u;
+	private static boolean relax(int u, int v, int w,
+			boolean zeroCycleSensitive, SearchState st) {
+		int du = st.getDistance(u);
+		if (du != SearchState.INFINITY) {
+			int temp = du + w;
+			int dv = st.getDistance(v);
+			if (dv > temp || (zeroCycleSensitive && dv == temp)) {
+				st.setDistance(v, temp);
+				st.setParent(v, u);
 				return true;
 			}
 		}
@@ -425,40 +850,152 @@ public class ShortestPath {
 	}
 
 	/**
-	 * create a deep copy of original graph with all its vertices, but only
-	 * edges that is part of a shortest path in the original graph
-	 * 
+	 * helper method to look for a cycle of parent pointers
+	 *
+	 * @param parent
+	 *            : int[] - parent of each vertex, 0 for none
+	 * @param n
+	 *            : int - number of vertices
+	 * @return : int - a vertex on a cycle, 0 if the pointers form a forest
+	 */
+	private static int findParentCycle(int[] parent, int n) {
+		// walk up from every vertex, marking the walk with its start vertex
+		int[] mark = new int[n + 1];
+		for (int v = 1; v <= n; v++) {
+			int u = v;
+			while (u != 0 && mark[u] == 0) {
+				mark[u] = v;
+				u = parent[u];
+			}
+			if (u != 0 && mark[u] == v) {
+				return u;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * helper method to find a zero weight cycle once distances are final.
+	 * Every arc of such a cycle is tight, so it is a cycle of the tight arcs
+	 * between reachable vertices. Parents are pointed around the cycle found.
+	 *
 	 * @param g
-	 *            : Graph - a graph that has been process by shortest path
-	 *            algorithm
-	 * @return : Graph - a DAG that contains the same vertices as the original
-	 *         graph, but only edges that is part of a shortest path in the
-	 *         original graph
+	 *            : CSRGraph - input graph
+	 * @param distance
+	 *            : int[] - final distance of each vertex
+	 * @param parent
+	 *            : int[] - parent of each vertex, changed if a cycle is found
+	 * @return : int - a vertex on a zero weight cycle, 0 if there is none
 	 */
-	private static Graph createSPDAG(Graph g) {
-		Graph spDag = new Graph(g.numNodes);
-		for (Vertex u : g) {
-			// deep copy
-			Vertex spDagU = spDag.verts.get(u.name);
-			spDagU.distance = u.distance;
-
-			if (u.distance != Integer.MAX_VALUE) {
-				for (Edge e : u.Adj) {
-					Vertex v = e.otherEnd(u);
-					Vertex spDagV = spDag.verts.get(v.name);
-					if (v.distance == u.distance + e.Weight) {
-						spDag.addDirectedEdge(spDagU.name, spDagV.name,
-								e.Weight);
-					}
+	private static int findZeroCycle(CSRGraph g, int[] distance, int[] parent) {
+		// remove vertices without a tight in arc from a remaining vertex
+		int[] tightIn = new int[g.numNodes + 1];
+		int[] queue = new int[g.numNodes];
+		int head = 0;
+		int tail = 0;
+		for (int v = 1; v <= g.numNodes; v++) {
+			if (distance[v] == SearchState.INFINITY) {
+				continue;
+			}
+			for (int r = g.inBegin(v); r < g.inEnd(v); r++) {
+				int u = g.revArcTail(r);
+				if (distance[u] != SearchState.INFINITY
+						&& distance[u] + g.revArcWeight(r) == distance[v]) {
+					tightIn[v]++;
+				}
+			}
+			if (tightIn[v] == 0) {
+				queue[tail++] = v;
+			}
+		}
+		while (head < tail) {
+			int u = queue[head++];
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				int v = g.arcHead(a);
+				if (distance[u] + g.arcWeight(a) == distance[v]
+						&& --tightIn[v] == 0) {
+					queue[tail++] = v;
+				}
+			}
+		}
+
+		// walk back along tight arcs between remaining vertices until a
+		// vertex repeats
+		int start = 0;
+		for (int v = 1; v <= g.numNodes && start == 0; v++) {
+			if (distance[v] != SearchState.INFINITY && tightIn[v] > 0) {
+				start = v;
+			}
+		}
+		if (start == 0) {
+			return 0;
+		}
+		int[] mark = new int[g.numNodes + 1];
+		int v = start;
+		while (mark[v] == 0) {
+			mark[v] = 1;
+			for (int r = g.inBegin(v); r < g.inEnd(v); r++) {
+				int u = g.revArcTail(r);
+				if (tightIn[u] > 0 && distance[u] != SearchState.INFINITY
+						&& distance[u] + g.revArcWeight(r) == distance[v]) {
+					parent[v] = u;
+					break;
 				}
 			}
+			v = parent[v];
 		}
-		return spDag;
+		return v;
+	}
+
+	/**
+	 * helper method for Bellman-Ford to check if an edge gives a better path
+	 * to its head. An equal path counts when zero cycle sensitive, unless the
+	 * edge already is the parent edge of an up to date head.
+	 *
+	 * @param u
+	 *            : int - from vertex, in the tree
+	 * @param v
+	 *            : int - to vertex
+	 * @param w
+	 *            : int - weight of the edge
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if an equal path is taken
+	 * @param st
+	 *            : SearchState - search data of the running query
+	 * @param tree
+	 *            : ParentTree - shortest path tree of the running query
+	 * @return : boolean - true if v should take u as its parent
+	 */
+	private static boolean improves(int u, int v, int w,
+			boolean zeroCycleSensitive, SearchState st, ParentTree tree) {
+		int temp = st.getDistance(u) + w;
+		int dv = st.getDistance(v);
+		return dv > temp
+				|| (zeroCycleSensitive && dv == temp && (st.getParent(v) != u || !tree
+						.contains(v)));
+	}
+
+	/**
+	 * helper method to check if an edge is part of a shortest path
+	 *
+	 * @param u
+	 *            : int - from vertex
+	 * @param v
+	 *            : int - to vertex
+	 * @param w
+	 *            : int - weight of the edge
+	 * @param st
+	 *            : SearchState - search data of a finished query
+	 * @return : boolean - true if distance of v is distance of u plus w
+	 */
+	private static boolean isTight(int u, int v, int w, SearchState st) {
+		int du = st.getDistance(u);
+		return du != SearchState.INFINITY && st.getDistance(v) == du + w;
 	}
 
 	/**
 	 * helper method to find the source as defined in DEF.java
-	 * 
+	 *
 	 * @param g
 	 *            : Graph - input graph
 	 * @return : Vertex - the source vertex as defined in DEF.java
@@ -0,0 +1,131 @@
+/**
+ * Helpers for running the tasks of the parallel engines on an executor. A
+ * batch of tasks runs on the pool, except a single task, which is not worth a
+ * hand off and runs on the calling thread. Per source work is handed out one
+ * item at a time to a fixed number of lanes, each holding one SearchState of
+ * a SearchStatePool, until the items run out or a lane stops every lane.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class Workers {
+	/**
+	 * one lane of forEach, holding the scratch space of its items
+	 */
+	interface Lane {
+		/**
+		 * process one item
+		 *
+		 * @param i
+		 *            : int - index of the item
+		 * @param st
+		 *            : SearchState - search state owned by the lane
+		 * @return : boolean - true to go on, false to stop every lane
+		 * @throws IOException
+		 */
+		boolean item(int i, SearchState st) throws IOException;
+	}
+
+	/**
+	 * creates the lane of each worker, called once on every worker thread
+	 */
+	interface LaneFactory {
+		Lane create();
+	}
+
+	/**
+	 * run tasks on the pool, a single task on the calling thread
+	 *
+	 * @param pool
+	 *            : ExecutorService - threads running the tasks
+	 * @param tasks
+	 *            : List<Callable<T>> - tasks to run
+	 * @return : List<T> - result of each task, in the order of the tasks
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting
+	 * @throws ExecutionException
+	 *             if a task throws, with the exception of the task as cause
+	 */
+	static <T> List<T> invoke(ExecutorService pool, List<Callable<T>> tasks)
+			throws InterruptedException, ExecutionException {
+		List<T> ret = new ArrayList<T>(tasks.size());
+		if (tasks.size() == 1) {
+			try {
+				ret.add(tasks.get(0).call());
+			} catch (Exception e) {
+				throw new ExecutionException(e);
+			}
+			return ret;
+		}
+		for (Future<T> f : pool.invokeAll(tasks)) {
+			ret.add(f.get());
+		}
+		return ret;
+	}
+
+	/**
+	 * process items 0..items - 1 on some lanes, each lane taking the next item
+	 * until none is left, an item returns false, or a lane fails. A lane
+	 * returns its search state to the pool however it ends.
+	 *
+	 * @param pool
+	 *            : ExecutorService - threads running the lanes
+	 * @param lanes
+	 *            : int - number of lanes
+	 * @param items
+	 *            : int - number of items
+	 * @param states
+	 *            : SearchStatePool - search states of the lanes
+	 * @param factory
+	 *            : LaneFactory - creates the lane of each worker
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting
+	 * @throws ExecutionException
+	 *             if a lane throws, with the exception of the lane as cause
+	 */
+	static void forEach(ExecutorService pool, int lanes, final int items,
+			final SearchStatePool states, final LaneFactory factory)
+			throws InterruptedException, ExecutionException {
+		final AtomicInteger next = new AtomicInteger();
+		// set by a lane that stops or fails, the others stop taking items
+		final AtomicBoolean stop = new AtomicBoolean();
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int t = 0; t < Math.max(1, lanes); t++) {
+			workers.add(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					Lane lane = factory.create();
+					SearchState st = states.acquire();
+					boolean finished = false;
+					try {
+						for (int i = next.getAndIncrement(); i < items
+								&& !stop.get(); i = next.getAndIncrement()) {
+							if (!lane.item(i, st)) {
+								stop.set(true);
+								break;
+							}
+						}
+						finished = true;
+					} finally {
+						if (!finished) {
+							stop.set(true);
+						}
+						states.release(st);
+					}
+					return null;
+				}
+			});
+		}
+		invoke(pool, workers);
+	}
+}
@@ -0,0 +1,305 @@
+package graph;
+
+/**
+ * Immutable compressed sparse row (CSR) representation of a directed graph.
+ * Forward arcs of vertex u occupy [outBegin(u), outEnd(u)) in the head and
+ * weight arrays, reverse arcs of vertex v occupy [inBegin(v), inEnd(v)) in the
+ * tail and weight arrays. Vertices are numbered 1..numNodes as in Graph, index
+ * 0 is not used.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.IntBuffer;
+import java.util.Scanner;
+
+public class CSRGraph {
+	public final int numNodes; // number of vertices in the graph
+	public final int numEdges; // number of arcs in the graph
+
+	private final int[] outStart; // offset of first forward arc of each vertex
+	private final int[] outHead; // head vertex of each forward arc
+	private final int[] outWeight; // weight of each forward arc
+	private final int[] inStart; // offset of first reverse arc of each vertex
+	private final int[] inTail; // tail vertex of each reverse arc
+	private final int[] inWeight; // weight of each reverse arc
+	// computed on first use; a profile only has final fields, so a racing
+	// thread sees a complete one or computes its own
+	private GraphProfile profile;
+
+	/**
+	 * Constructor for CSRGraph, arrays are used as is without copy
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @param outStart
+	 *            : int[] - forward offsets, length n + 2
+	 * @param outHead
+	 *            : int[] - forward arc heads
+	 * @param outWeight
+	 *            : int[] - forward arc weights
+	 * @param inStart
+	 *            : int[] - reverse offsets, length n + 2
+	 * @param inTail
+	 *            : int[] - reverse arc tails
+	 * @param inWeight
+	 *            : int[] - reverse arc weights
+	 */
+	CSRGraph(int n, int[] outStart, int[] outHead, int[] outWeight,
+			int[] inStart, int[] inTail, int[] inWeight) {
+		this.numNodes = n;
+		this.numEdges = outHead.length;
+		this.outStart = outStart;
+		this.outHead = outHead;
+		this.outWeight = outWeight;
+		this.inStart = inStart;
+		this.inTail = inTail;
+		this.inWeight = inWeight;
+	}
+
+	/**
+	 * Constructor for a CSRGraph whose arcs are read by a subclass, the
+	 * accessors of this class must all be overridden
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @param m
+	 *            : int - number of arcs
+	 */
+	CSRGraph(int n, int m) {
+		this.numNodes = n;
+		this.numEdges = m;
+		this.outStart = null;
+		this.outHead = null;
+		this.outWeight = null;
+		this.inStart = null;
+		this.inTail = null;
+		this.inWeight = null;
+	}
+
+	/**
+	 * Build a CSR graph from an object graph, forward arcs of each vertex keep
+	 * the order of Vertex.Adj
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 * @return : CSRGraph - CSR copy of the input graph
+	 */
+	public static CSRGraph fromGraph(Graph g) {
+		int m = 0;
+		for (Vertex u : g) {
+			m += u.Adj.size();
+		}
+
+		int[] from = new int[m];
+		int[] to = new int[m];
+		int[] weight = new int[m];
+		int i = 0;
+		for (Vertex u : g) {
+			for (Edge e : u.Adj) {
+				from[i] = u.name;
+				to[i] = e.otherEnd(u).name;
+				weight[i] = e.Weight;
+				i++;
+			}
+		}
+		return fromEdges(g.numNodes, from, to, weight);
+	}
+
+	/**
+	 * Build a CSR graph from an edge list, arcs of the same tail keep their
+	 * relative order in the list
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @param from
+	 *            : int[] - tail of each arc
+	 * @param to
+	 *            : int[] - head of each arc
+	 * @param weight
+	 *            : int[] - weight of each arc
+	 * @return : CSRGraph - CSR graph of the edge list
+	 */
+	public static CSRGraph fromEdges(int n, int[] from, int[] to, int[] weight) {
+		int m = from.length;
+		int[] outStart = new int[n + 2];
+		int[] outHead = new int[m];
+		int[] outWeight = new int[m];
+		int[] inStart = new int[n + 2];
+		int[] inTail = new int[m];
+		int[] inWeight = new int[m];
+
+		// counting sort on tail (forward) and head (reverse), stable
+		for (int i = 0; i < m; i++) {
+			outStart[from[i] + 1]++;
+			inStart[to[i] + 1]++;
+		}
+		for (int u = 1; u <= n + 1; u++) {
+			outStart[u] += outStart[u - 1];
+			inStart[u] += inStart[u - 1];
+		}
+		int[] outNext = new int[n + 1];
+		int[] inNext = new int[n + 1];
+		System.arraycopy(outStart, 0, outNext, 0, n + 1);
+		System.arraycopy(inStart, 0, inNext, 0, n + 1);
+		for (int i = 0; i < m; i++) {
+			int a = outNext[from[i]]++;
+			outHead[a] = to[i];
+			outWeight[a] = weight[i];
+			int r = inNext[to[i]]++;
+			inTail[r] = from[i];
+			inWeight[r] = weight[i];
+		}
+		return new CSRGraph(n, outStart, outHead, outWeight, inStart, inTail,
+				inWeight);
+	}
+
+	/** offset of the first forward arc of vertex u */
+	public int outBegin(int u) {
+		return outStart[u];
+	}
+
+	/** offset past the last forward arc of vertex u */
+	public int outEnd(int u) {
+		return outStart[u + 1];
+	}
+
+	/** head vertex of forward arc a */
+	public int arcHead(int a) {
+		return outHead[a];
+	}
+
+	/** weight of forward arc a */
+	public int arcWeight(int a) {
+		return outWeight[a];
+	}
+
+	/** offset of the first reverse arc of vertex v */
+	public int inBegin(int v) {
+		return inStart[v];
+	}
+
+	/** offset past the last reverse arc of vertex v */
+	public int inEnd(int v) {
+		return inStart[v + 1];
+	}
+
+	/** tail vertex of reverse arc r */
+	public int revArcTail(int r) {
+		return inTail[r];
+	}
+
+	/** weight of reverse arc r */
+	public int revArcWeight(int r) {
+		return inWeight[r];
+	}
+
+	/** number of forward arcs of vertex u */
+	public int outDegree(int u) {
+		return outStart[u + 1] - outStart[u];
+	}
+
+	/** number of reverse arcs of vertex v */
+	public int inDegree(int v) {
+		return inStart[v + 1] - inStart[v];
+	}
+
+	/**
+	 * Statistics of this graph, computed on first use
+	 *
+	 * @return : GraphProfile - weight, degree and acyclicity of the graph
+	 */
+	public GraphProfile profile() {
+		GraphProfile p = profile;
+		if (p == null) {
+			p = GraphProfile.of(this);
+			profile = p;
+		}
+		return p;
+	}
+
+	/**
+	 * Approximate footprint of this graph in bytes (array payload plus array
+	 * headers). For a mapped snapshot the payload lives in the page cache
+	 * rather than on the heap.
+	 *
+	 * @return : long - bytes used by the CSR arrays
+	 */
+	public long memoryBytes() {
+		return 6 * Graph.ARRAY_HEADER_BYTES + 4L
+				* (2L * (numNodes + 2) + 4L * numEdges);
+	}
+
+	/**
+	 * Build an object graph with the same arcs, in the same order
+	 *
+	 * @return : Graph - object graph copy of this graph
+	 */
+	public Graph toGraph() {
+		Graph g = new Graph(numNodes);
+		for (int u = 1; u <= numNodes; u++) {
+			for (int a = outBegin(u); a < outEnd(u); a++) {
+				g.addDirectedEdge(u, arcHead(a), arcWeight(a));
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * View of this graph with every arc reversed, sharing the same arrays. A
+	 * search from v on the reverse graph runs over the arcs into v.
+	 *
+	 * @return : CSRGraph - transpose of this graph
+	 */
+	public CSRGraph reverse() {
+		return new CSRGraph(numNodes, inStart, inTail, inWeight, outStart,
+				outHead, outWeight);
+	}
+
+	/**
+	 * Read only views of the six CSR arrays, in the order outStart, outHead,
+	 * outWeight, inStart, inTail, inWeight. Used by GraphSnapshot.
+	 *
+	 * @return : IntBuffer[] - duplicated buffers positioned at 0
+	 */
+	IntBuffer[] buffers() {
+		int[][] arrays = { outStart, outHead, outWeight, inStart, inTail,
+				inWeight };
+		IntBuffer[] ret = new IntBuffer[arrays.length];
+		for (int i = 0; i < arrays.length; i++) {
+			ret[i] = IntBuffer.wrap(arrays[i]).asReadOnlyBuffer();
+		}
+		return ret;
+	}
+
+	/**
+	 * Driver function reporting per arc memory of object graph and CSR graph
+	 *
+	 * @param args
+	 *            argument - input graph file
+	 * @throws FileNotFoundException
+	 */
+	public static void main(String[] args) throws FileNotFoundException {
+		Scanner in;
+		if (args.length > 0) {
+			in = new Scanner(new File(args[0]));
+		} else {
+			in = new Scanner(System.in);
+		}
+		Graph g = Graph.readGraph(in, true);
+		CSRGraph csr = fromGraph(g);
+		long arcs = Math.max(1, csr.numEdges);
+
+		long objectBytes = g.estimateMemoryBytes();
+		long csrBytes = csr.memoryBytes();
+		System.out.println("Vertices: " + csr.numNodes + ", arcs: "
+				+ csr.numEdges);
+		System.out.println("Object graph: " + objectBytes + " bytes, "
+				+ (objectBytes / arcs) + " bytes per arc");
+		System.out.println("CSR graph: " + csrBytes + " bytes, "
+				+ (csrBytes / arcs) + " bytes per arc");
+	}
+}
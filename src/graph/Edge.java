@@ -10,9 +10,6 @@ public class Edge {
 	public Vertex From; // head vertex
 	public Vertex To; // tail vertex
 	public int Weight;// weight of the arc
-	public boolean seen; // indicator if been visited
-	public boolean isPartOfSP; // indicator if this edge is part of any shortest
-								// path
 
 	/**
 	 * Constructor for Edge
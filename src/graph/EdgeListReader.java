@@ -0,0 +1,243 @@
+package graph;
+
+/**
+ * Fast reader for the "n m / u v w" edge list format expected by readGraph.
+ * Input is pulled through a channel into a reusable byte buffer and integers
+ * are parsed by hand, so no String is created per token.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.InputMismatchException;
+import java.util.Scanner;
+
+public class EdgeListReader {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final ReadableByteChannel channel; // input source
+	private final ByteBuffer buffer; // bytes read but not parsed yet
+
+	/**
+	 * Constructor for EdgeListReader
+	 *
+	 * @param channel
+	 *            : ReadableByteChannel - channel to read the edge list from
+	 */
+	public EdgeListReader(ReadableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.buffer.flip(); // start with an empty buffer
+	}
+
+	/**
+	 * Read an object graph from a file
+	 *
+	 * @param file
+	 *            : File - edge list file
+	 * @param directed
+	 *            : boolean - true if edges are arcs
+	 * @return : Graph - graph described by the file
+	 * @throws IOException
+	 */
+	public static Graph readGraph(File file, boolean directed)
+			throws IOException {
+		try (FileChannel fc = new FileInputStream(file).getChannel()) {
+			return new EdgeListReader(fc).readGraph(directed);
+		}
+	}
+
+	/**
+	 * Read an object graph from a stream, the stream is not closed
+	 *
+	 * @param in
+	 *            : InputStream - edge list stream
+	 * @param directed
+	 *            : boolean - true if edges are arcs
+	 * @return : Graph - graph described by the stream
+	 * @throws IOException
+	 */
+	public static Graph readGraph(InputStream in, boolean directed)
+			throws IOException {
+		return new EdgeListReader(Channels.newChannel(in)).readGraph(directed);
+	}
+
+	/**
+	 * Read a directed CSR graph from a file without creating Vertex or Edge
+	 * objects
+	 *
+	 * @param file
+	 *            : File - edge list file
+	 * @return : CSRGraph - graph described by the file
+	 * @throws IOException
+	 */
+	public static CSRGraph readCSRGraph(File file) throws IOException {
+		try (FileChannel fc = new FileInputStream(file).getChannel()) {
+			return new EdgeListReader(fc).readCSRGraph();
+		}
+	}
+
+	/**
+	 * Read the header and the edges into an object graph. Input after the last
+	 * edge is not processed.
+	 *
+	 * @param directed
+	 *            : boolean - true if edges are arcs
+	 * @return : Graph - graph described by the input
+	 * @throws IOException
+	 */
+	public Graph readGraph(boolean directed) throws IOException {
+		int n = nextInt(); // number of vertices in the graph
+		int m = nextInt(); // number of edges in the graph
+
+		Graph g = new Graph(n);
+		for (int i = 0; i < m; i++) {
+			int u = nextInt();
+			int v = nextInt();
+			int w = nextInt();
+			if (directed) {
+				g.addDirectedEdge(u, v, w);
+			} else {
+				g.addEdge(u, v, w);
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * Read the header and the arcs into a CSR graph. Input after the last arc
+	 * is not processed.
+	 *
+	 * @return : CSRGraph - graph described by the input
+	 * @throws IOException
+	 */
+	public CSRGraph readCSRGraph() throws IOException {
+		int n = nextInt();
+		int m = nextInt();
+
+		int[] from = new int[m];
+		int[] to = new int[m];
+		int[] weight = new int[m];
+		for (int i = 0; i < m; i++) {
+			from[i] = nextInt();
+			to[i] = nextInt();
+			weight[i] = nextInt();
+		}
+		return CSRGraph.fromEdges(n, from, to, weight);
+	}
+
+	/**
+	 * Parse the next (optionally signed) decimal integer, skipping leading
+	 * white space
+	 *
+	 * @return : int - value of the next token
+	 * @throws IOException
+	 */
+	public int nextInt() throws IOException {
+		int c = read();
+		while (c != -1 && c <= ' ') {
+			c = read();
+		}
+		if (c == -1) {
+			throw new EOFException("Unexpected end of edge list");
+		}
+
+		boolean negative = false;
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			c = read();
+		}
+		if (c < '0' || c > '9') {
+			throw new InputMismatchException("Invalid character in edge list: "
+					+ (char) c);
+		}
+
+		// accumulate as a negative number so that Integer.MIN_VALUE fits
+		int value = 0;
+		while (c >= '0' && c <= '9') {
+			int digit = c - '0';
+			if (value < (Integer.MIN_VALUE + digit) / 10) {
+				throw new InputMismatchException("Integer overflow in edge list");
+			}
+			value = value * 10 - digit;
+			c = read();
+		}
+		if (c != -1 && c > ' ') {
+			throw new InputMismatchException("Invalid character in edge list: "
+					+ (char) c);
+		}
+
+		if (negative) {
+			return value;
+		}
+		if (value == Integer.MIN_VALUE) {
+			throw new InputMismatchException("Integer overflow in edge list");
+		}
+		return -value;
+	}
+
+	/**
+	 * Read the next byte, refilling the buffer from the channel when needed
+	 *
+	 * @return : int - next byte, -1 at end of input
+	 * @throws IOException
+	 */
+	private int read() throws IOException {
+		if (!buffer.hasRemaining()) {
+			buffer.clear();
+			int read = channel.read(buffer);
+			while (read == 0) {
+				read = channel.read(buffer);
+			}
+			buffer.flip();
+			if (read < 0) {
+				return -1;
+			}
+		}
+		return buffer.get() & 0xff;
+	}
+
+	/**
+	 * Driver function comparing Scanner based and channel based ingest time
+	 *
+	 * @param args
+	 *            argument - input graph file
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java graph.EdgeListReader <graph file>");
+			return;
+		}
+		File file = new File(args[0]);
+
+		long start = System.currentTimeMillis();
+		Graph scanned = Graph.readGraph(new Scanner(file), true);
+		long end = System.currentTimeMillis();
+		System.out.println("Scanner readGraph: " + (end - start) + " ms, "
+				+ scanned.numNodes + " vertices");
+		scanned = null;
+
+		start = System.currentTimeMillis();
+		Graph parsed = readGraph(file, true);
+		end = System.currentTimeMillis();
+		System.out.println("EdgeListReader readGraph: " + (end - start)
+				+ " ms, " + parsed.numNodes + " vertices");
+		parsed = null;
+
+		start = System.currentTimeMillis();
+		CSRGraph csr = readCSRGraph(file);
+		end = System.currentTimeMillis();
+		System.out.println("EdgeListReader readCSRGraph: " + (end - start)
+				+ " ms, " + csr.numEdges + " arcs");
+	}
+}
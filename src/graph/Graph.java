@@ -13,8 +13,22 @@ import java.util.List;
 import java.util.Scanner;
 
 public class Graph implements Iterable<Vertex> {
+	// approximate object layout on a 64-bit JVM with compressed oops, used for
+	// memory estimation only
+	static final int ARRAY_HEADER_BYTES = 16;
+	static final int REFERENCE_BYTES = 4;
+	static final int ARRAY_LIST_BYTES = 24;
+	static final int VERTEX_BYTES = 40;
+	static final int EDGE_BYTES = 24;
+
+	static final int REACHABLE_PROFILES = 4; // sources whose profile is kept
+
 	public List<Vertex> verts; // array of vertices
 	public int numNodes; // number of vertices in the graph
+	private GraphProfile profile; // cached statistics, null after a change
+	// cached statistics of the parts reachable from the last few sources,
+	// newest first; the array is never modified, only replaced as a whole
+	private volatile GraphProfile[] reachable;
 
 	/**
 	 * Constructor for Graph
@@ -47,6 +61,8 @@ public class Graph implements Iterable<Vertex> {
 		Edge e = new Edge(u, v, weight);
 		u.Adj.add(e);
 		v.Adj.add(e);
+		profile = null;
+		reachable = null;
 	}
 
 	/**
@@ -65,6 +81,54 @@ public class Graph implements Iterable<Vertex> {
 		Edge e = new Edge(head, tail, weight);
 		head.Adj.add(e);
 		tail.revAdj.add(e);
+		profile = null;
+		reachable = null;
+	}
+
+	/**
+	 * Statistics of this graph, computed on first use and kept until the next
+	 * addEdge or addDirectedEdge
+	 * 
+	 * @return : GraphProfile - weight, degree and acyclicity of the graph
+	 */
+	public GraphProfile profile() {
+		if (profile == null) {
+			profile = GraphProfile.of(this);
+		}
+		return profile;
+	}
+
+	/**
+	 * Statistics of the part of this graph reachable from a source, kept for
+	 * the last REACHABLE_PROFILES sources until the next addEdge or
+	 * addDirectedEdge. Safe to call from several threads: a thread sees the
+	 * profile of its own source, racing threads at worst drop each other's
+	 * entry and compute it again.
+	 * 
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @return : GraphProfile - weight, degree and acyclicity of the vertices
+	 *         and edges reachable from s
+	 */
+	public GraphProfile profile(Vertex s) {
+		GraphProfile[] cache = reachable;
+		int kept = 0;
+		if (cache != null) {
+			for (GraphProfile p : cache) {
+				if (p.source == s.name) {
+					return p;
+				}
+			}
+			kept = Math.min(cache.length, REACHABLE_PROFILES - 1);
+		}
+		GraphProfile p = GraphProfile.of(this, s);
+		GraphProfile[] next = new GraphProfile[kept + 1];
+		next[0] = p;
+		if (kept > 0) {
+			System.arraycopy(cache, 0, next, 1, kept);
+		}
+		reachable = next;
+		return p;
 	}
 
 	/**
@@ -141,6 +205,28 @@ public class Graph implements Iterable<Vertex> {
 		return g;
 	}
 
+	/**
+	 * Approximate heap footprint of this graph in bytes, counting vertices,
+	 * edges, adjacency lists and their backing arrays
+	 * 
+	 * @return : long - estimated bytes used by the graph
+	 */
+	public long estimateMemoryBytes() {
+		long bytes = ARRAY_LIST_BYTES + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES
+				* verts.size();
+		for (Vertex u : this) {
+			bytes += VERTEX_BYTES + 2 * (ARRAY_LIST_BYTES + ARRAY_HEADER_BYTES);
+			bytes += (long) REFERENCE_BYTES * (u.Adj.size() + u.revAdj.size());
+			for (Edge e : u.Adj) {
+				// count an undirected edge once, from its head
+				if (e.From == u) {
+					bytes += EDGE_BYTES;
+				}
+			}
+		}
+		return bytes;
+	}
+
 	public void printGraph() {
 		for (Vertex u : this) {
 			System.out.println("Vertex: " + u);
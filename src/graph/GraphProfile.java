@@ -0,0 +1,342 @@
+package graph;
+
+/**
+ * Statistics of a graph used to pick a shortest path algorithm: edge weight
+ * range, negative and zero weight edge counts, degrees, and a topological
+ * order when the graph is acyclic. Everything is gathered in one pass that
+ * scans each arc once, the arcs of a vertex being read while Kahn's algorithm
+ * removes it (or afterwards, for the vertices left on a cycle). A cyclic graph
+ * with zero but no negative weight edges also gets the strongly connected
+ * components of its zero weight edges, to tell whether it has a zero weight
+ * cycle.
+ *
+ * A profile of the part of a graph reachable from a source is gathered in one
+ * depth first sweep instead: vertices and edges the source cannot reach do
+ * not count, so an unreachable negative edge or cycle does not decide the
+ * algorithm.
+ *
+ * A profile is an immutable snapshot that records the source it was taken
+ * from, so it can be shared between threads. Graph caches its profiles until
+ * the next addEdge or addDirectedEdge, CSRGraph keeps its profile for good.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.util.Arrays;
+
+public class GraphProfile {
+	public final int source; // source of a reachable part, 0 for all vertices
+	public final int numNodes; // number of vertices
+	public final int numEdges; // number of edges, an undirected edge once
+	public final int minWeight; // smallest edge weight, 0 without edges
+	public final int maxWeight; // largest edge weight, 0 without edges
+	public final int negativeEdges; // number of negative weight edges
+	public final int zeroEdges; // number of zero weight edges
+	public final int maxOutDegree; // longest adjacency list
+	public final int maxInDegree; // longest reverse adjacency list
+	private final int[] topOrder; // vertex names, null if there is a cycle
+	// a cycle of zero weight edges exists, only looked for without negative
+	// weight edges
+	private final boolean zeroCycle;
+
+	private GraphProfile(int source, int n, int m, int minWeight,
+			int maxWeight, int negativeEdges, int zeroEdges, int maxOutDegree,
+			int maxInDegree, int[] topOrder, boolean zeroCycle) {
+		this.source = source;
+		this.numNodes = n;
+		this.numEdges = m;
+		this.minWeight = m > 0 ? minWeight : 0;
+		this.maxWeight = m > 0 ? maxWeight : 0;
+		this.negativeEdges = negativeEdges;
+		this.zeroEdges = zeroEdges;
+		this.maxOutDegree = maxOutDegree;
+		this.maxInDegree = maxInDegree;
+		this.topOrder = topOrder;
+		this.zeroCycle = zeroCycle;
+	}
+
+	/**
+	 * profile an object graph
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 * @return : GraphProfile - statistics of the graph as it is now
+	 */
+	static GraphProfile of(Graph g) {
+		int n = g.numNodes;
+		// array to simulate deletion of edges
+		int[] unvisitedEdge = new int[n + 1];
+		int[] order = new int[n];
+		boolean[] removed = new boolean[n + 1];
+		int head = 0;
+		int tail = 0;
+		int maxIn = 0;
+		for (Vertex v : g) {
+			unvisitedEdge[v.name] = v.revAdj.size();
+			maxIn = Math.max(maxIn, v.revAdj.size());
+			if (unvisitedEdge[v.name] == 0) {
+				order[tail++] = v.name;
+			}
+		}
+
+		Stats stats = new Stats();
+		while (head < tail) {
+			Vertex u = g.verts.get(order[head++]);
+			removed[u.name] = true;
+			stats.degree(u.Adj.size());
+			for (Edge e : u.Adj) {
+				Vertex v = e.otherEnd(u);
+				// an undirected edge is in both lists, count it from its tail
+				if (e.From == u) {
+					stats.weight(e.Weight);
+				}
+				unvisitedEdge[v.name]--;
+				if (unvisitedEdge[v.name] == 0) {
+					order[tail++] = v.name;
+				}
+			}
+		}
+
+		boolean acyclic = true;
+		for (Vertex u : g) {
+			if (unvisitedEdge[u.name] > 0) {
+				acyclic = false;
+			}
+			if (!removed[u.name]) {
+				stats.degree(u.Adj.size());
+				for (Edge e : u.Adj) {
+					if (e.From == u) {
+						stats.weight(e.Weight);
+					}
+				}
+			}
+		}
+		boolean zeroCycle = !acyclic && stats.zeroEdges > 0
+				&& stats.negativeEdges == 0
+				&& StrongComponents.of(g, true).hasCycle();
+		return stats.profile(0, n, maxIn, acyclic ? trim(order, tail) : null,
+				zeroCycle);
+	}
+
+	/**
+	 * profile the part of an object graph reachable from a source. One
+	 * iterative depth first sweep finds the reachable vertices, reads each of
+	 * their edges once, detects a cycle by an edge back to an open vertex, and
+	 * gives the topological order as reverse finishing order.
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @return : GraphProfile - statistics of the vertices and edges reachable
+	 *         from s, numNodes counts the reachable vertices
+	 */
+	static GraphProfile of(Graph g, Vertex s) {
+		int n = g.numNodes;
+		int[] state = new int[n + 1]; // 0 new, 1 open, 2 finished
+		int[] next = new int[n + 1]; // next adjacency position of a vertex
+		int[] inDegree = new int[n + 1]; // in degree within the reachable part
+		int[] call = new int[n]; // explicit recursion stack
+		int[] finish = new int[n]; // vertex names in finishing order
+		int depth = 0;
+		int reached = 0;
+		boolean acyclic = true;
+
+		Stats stats = new Stats();
+		state[s.name] = 1;
+		call[depth++] = s.name;
+		while (depth > 0) {
+			Vertex u = g.verts.get(call[depth - 1]);
+			if (next[u.name] < u.Adj.size()) {
+				Edge e = u.Adj.get(next[u.name]++);
+				Vertex v = e.otherEnd(u);
+				// an undirected edge is in both lists, count it from its tail
+				if (e.From == u) {
+					stats.weight(e.Weight);
+				}
+				inDegree[v.name]++;
+				if (state[v.name] == 0) {
+					state[v.name] = 1;
+					call[depth++] = v.name;
+				} else if (state[v.name] == 1) {
+					acyclic = false;
+				}
+				continue;
+			}
+			depth--;
+			state[u.name] = 2;
+			finish[reached++] = u.name;
+			stats.degree(u.Adj.size());
+		}
+
+		int maxIn = 0;
+		boolean[] within = new boolean[n + 1];
+		for (int i = 0; i < reached; i++) {
+			maxIn = Math.max(maxIn, inDegree[finish[i]]);
+			within[finish[i]] = true;
+		}
+		int[] order = null;
+		if (acyclic) {
+			order = new int[reached];
+			for (int i = 0; i < reached; i++) {
+				order[i] = finish[reached - 1 - i];
+			}
+		}
+		boolean zeroCycle = !acyclic && stats.zeroEdges > 0
+				&& stats.negativeEdges == 0
+				&& StrongComponents.of(g, true, within).hasCycle();
+		return stats.profile(s.name, reached, maxIn, order, zeroCycle);
+	}
+
+	/**
+	 * profile a CSR graph
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @return : GraphProfile - statistics of the graph
+	 */
+	static GraphProfile of(CSRGraph g) {
+		int n = g.numNodes;
+		// array to simulate deletion of arcs
+		int[] unvisitedEdge = new int[n + 1];
+		int[] order = new int[n];
+		int head = 0;
+		int tail = 0;
+		int maxIn = 0;
+		for (int v = 1; v <= n; v++) {
+			unvisitedEdge[v] = g.inDegree(v);
+			maxIn = Math.max(maxIn, unvisitedEdge[v]);
+			if (unvisitedEdge[v] == 0) {
+				order[tail++] = v;
+			}
+		}
+
+		Stats stats = new Stats();
+		while (head < tail) {
+			int u = order[head++];
+			stats.degree(g.outDegree(u));
+			for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+				stats.weight(g.arcWeight(a));
+				int v = g.arcHead(a);
+				unvisitedEdge[v]--;
+				if (unvisitedEdge[v] == 0) {
+					order[tail++] = v;
+				}
+			}
+		}
+
+		if (tail < n) {
+			// vertices on or behind a cycle were never removed
+			for (int u = 1; u <= n; u++) {
+				if (unvisitedEdge[u] > 0) {
+					stats.degree(g.outDegree(u));
+					for (int a = g.outBegin(u); a < g.outEnd(u); a++) {
+						stats.weight(g.arcWeight(a));
+					}
+				}
+			}
+		}
+		boolean zeroCycle = tail < n && stats.zeroEdges > 0
+				&& stats.negativeEdges == 0
+				&& StrongComponents.of(g, true).hasCycle();
+		return stats.profile(0, n, maxIn, tail == n ? order : null,
+				zeroCycle);
+	}
+
+	/**
+	 * check if every edge has the same non-negative weight, so BFS finds the
+	 * shortest paths
+	 *
+	 * @return : boolean - true if the graph has uniform non-negative edge
+	 *         weight, false otherwise (also without edges)
+	 */
+	public boolean isUniform() {
+		return numEdges > 0 && minWeight == maxWeight && minWeight >= 0;
+	}
+
+	/** check if the graph has no directed cycle */
+	public boolean isAcyclic() {
+		return topOrder != null;
+	}
+
+	/**
+	 * check if the algorithms for non-negative weights (BFS, DAG, Dijkstra)
+	 * solve the graph. Zero weight edges are fine as long as they do not
+	 * close a cycle, which would give some vertex infinitely many shortest
+	 * paths.
+	 *
+	 * @param zeroCycleSensitive
+	 *            : boolean - indicator if zero weight cycles are illegal
+	 * @return : boolean - true if the graph has no negative edge and, when
+	 *         zero cycles are illegal, no zero weight cycle
+	 */
+	public boolean isNonNegative(boolean zeroCycleSensitive) {
+		return negativeEdges == 0 && !(zeroCycleSensitive && zeroCycle);
+	}
+
+	/** average number of edges leaving a vertex */
+	public double averageDegree() {
+		return numNodes == 0 ? 0 : (double) numEdges / numNodes;
+	}
+
+	/**
+	 * topological order of the vertices, shared with every caller and not to
+	 * be modified
+	 *
+	 * @return : int[] - vertex names in topological order, null if the graph
+	 *         has a cycle
+	 */
+	public int[] topologicalOrder() {
+		return topOrder;
+	}
+
+	@Override
+	public String toString() {
+		return "vertices " + numNodes + ", edges " + numEdges + ", weights ["
+				+ minWeight + ", " + maxWeight + "], negative " + negativeEdges
+				+ ", zero " + zeroEdges + ", degree avg "
+				+ String.format("%.2f", averageDegree()) + " max out "
+				+ maxOutDegree + " max in " + maxInDegree
+				+ (isAcyclic() ? ", acyclic" : ", cyclic")
+				+ (zeroCycle ? ", zero cycle" : "");
+	}
+
+	private static int[] trim(int[] a, int length) {
+		return length == a.length ? a : Arrays.copyOf(a, length);
+	}
+
+	/**
+	 * running weight and degree statistics of the profiling pass
+	 */
+	private static class Stats {
+		int edges;
+		int minWeight = Integer.MAX_VALUE;
+		int maxWeight = Integer.MIN_VALUE;
+		int negativeEdges;
+		int zeroEdges;
+		int maxOutDegree;
+
+		void weight(int w) {
+			edges++;
+			minWeight = Math.min(minWeight, w);
+			maxWeight = Math.max(maxWeight, w);
+			if (w < 0) {
+				negativeEdges++;
+			} else if (w == 0) {
+				zeroEdges++;
+			}
+		}
+
+		void degree(int d) {
+			maxOutDegree = Math.max(maxOutDegree, d);
+		}
+
+		GraphProfile profile(int source, int n, int maxInDegree,
+				int[] topOrder, boolean zeroCycle) {
+			return new GraphProfile(source, n, edges, minWeight, maxWeight,
+					negativeEdges, zeroEdges, maxOutDegree, maxInDegree,
+					topOrder, zeroCycle);
+		}
+	}
+}
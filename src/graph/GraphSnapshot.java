@@ -0,0 +1,237 @@
+package graph;
+
+/**
+ * Versioned binary snapshot of a CSRGraph. The file holds a 16 byte header
+ * (magic, version, number of vertices, number of arcs) followed by the six CSR
+ * arrays in the order outStart, outHead, outWeight, inStart, inTail, inWeight,
+ * all as little endian 32 bit integers. Loading memory maps each array, so
+ * opening a snapshot costs a few system calls and pages are brought in on
+ * first access. The mapped graph reads its arcs through buffers, slower to
+ * scan than a graph built on the heap, so drivers that run engines over the
+ * graph load it instead, which copies it onto the heap when it fits.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+public class GraphSnapshot {
+	public static final int MAGIC = 0x47525343; // "CSRG" in little endian
+	public static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 16;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Write a CSR graph to a snapshot file, replacing any existing content
+	 *
+	 * @param g
+	 *            : CSRGraph - graph to be saved
+	 * @param file
+	 *            : File - snapshot file
+	 * @throws IOException
+	 */
+	public static void write(CSRGraph g, File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				FileChannel fc = raf.getChannel()) {
+			fc.truncate(0);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(
+					ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(g.numNodes);
+			buffer.putInt(g.numEdges);
+
+			for (IntBuffer section : g.buffers()) {
+				while (section.hasRemaining()) {
+					if (buffer.remaining() < 4) {
+						drain(fc, buffer);
+					}
+					buffer.putInt(section.get());
+				}
+			}
+			drain(fc, buffer);
+			fc.force(true);
+		}
+	}
+
+	/**
+	 * Memory map a snapshot file as a read only CSR graph. The file may be
+	 * closed or deleted afterwards, the mapping stays valid until the graph is
+	 * garbage collected.
+	 *
+	 * @param file
+	 *            : File - snapshot file
+	 * @return : CSRGraph - graph backed by the mapped file
+	 * @throws IOException
+	 *             if the file is not a snapshot of a supported version
+	 */
+	public static CSRGraph map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel fc = raf.getChannel()) {
+			if (fc.size() < HEADER_BYTES) {
+				throw new IOException("Not a graph snapshot: " + file);
+			}
+			ByteBuffer header = fc.map(FileChannel.MapMode.READ_ONLY, 0,
+					HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a graph snapshot: " + file);
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported graph snapshot version "
+						+ version + ": " + file);
+			}
+			int n = header.getInt();
+			int m = header.getInt();
+
+			long expected = HEADER_BYTES + 4L * (2L * (n + 2) + 4L * m);
+			if (fc.size() != expected) {
+				throw new IOException("Truncated graph snapshot: " + file);
+			}
+
+			long offset = HEADER_BYTES;
+			IntBuffer outStart = section(fc, offset, n + 2);
+			offset += 4L * (n + 2);
+			IntBuffer outHead = section(fc, offset, m);
+			offset += 4L * m;
+			IntBuffer outWeight = section(fc, offset, m);
+			offset += 4L * m;
+			IntBuffer inStart = section(fc, offset, n + 2);
+			offset += 4L * (n + 2);
+			IntBuffer inTail = section(fc, offset, m);
+			offset += 4L * m;
+			IntBuffer inWeight = section(fc, offset, m);
+
+			return new MappedCSRGraph(n, outStart, outHead, outWeight,
+					inStart, inTail, inWeight);
+		}
+	}
+
+	/**
+	 * Open a snapshot file for repeated scans: the arrays are copied into a
+	 * CSRGraph on the heap when they take at most half of the free heap, the
+	 * graph stays mapped otherwise. The copy costs one sequential read of the
+	 * file, after which every scan runs over int arrays.
+	 *
+	 * @param file
+	 *            : File - snapshot file
+	 * @return : CSRGraph - graph on the heap, or backed by the mapped file
+	 * @throws IOException
+	 *             if the file is not a snapshot of a supported version
+	 */
+	public static CSRGraph load(File file) throws IOException {
+		CSRGraph g = map(file);
+		Runtime rt = Runtime.getRuntime();
+		long free = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+		if (g.memoryBytes() > free / 2) {
+			return g;
+		}
+		IntBuffer[] sections = g.buffers();
+		int[][] arrays = new int[sections.length][];
+		for (int i = 0; i < sections.length; i++) {
+			arrays[i] = new int[sections[i].remaining()];
+			sections[i].get(arrays[i]);
+		}
+		return new CSRGraph(g.numNodes, arrays[0], arrays[1], arrays[2],
+				arrays[3], arrays[4], arrays[5]);
+	}
+
+	/**
+	 * Check if a file starts with the snapshot magic number
+	 *
+	 * @param file
+	 *            : File - file to be checked
+	 * @return : boolean - true if the file looks like a snapshot
+	 * @throws IOException
+	 */
+	public static boolean isSnapshot(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			if (raf.length() < HEADER_BYTES) {
+				return false;
+			}
+			return Integer.reverseBytes(raf.readInt()) == MAGIC;
+		}
+	}
+
+	/**
+	 * Map one int array of the snapshot
+	 *
+	 * @param fc
+	 *            : FileChannel - snapshot file
+	 * @param offset
+	 *            : long - byte offset of the array
+	 * @param length
+	 *            : int - number of ints in the array
+	 * @return : IntBuffer - little endian view of the mapped array
+	 * @throws IOException
+	 */
+	private static IntBuffer section(FileChannel fc, long offset, int length)
+			throws IOException {
+		if (4L * length > Integer.MAX_VALUE) {
+			throw new IOException("Snapshot section too large to map: "
+					+ length + " ints");
+		}
+		return fc.map(FileChannel.MapMode.READ_ONLY, offset, 4L * length)
+				.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+
+	/**
+	 * Write out the content of a buffer and clear it for more puts
+	 *
+	 * @param fc
+	 *            : FileChannel - output file
+	 * @param buffer
+	 *            : ByteBuffer - buffer in write mode
+	 * @throws IOException
+	 */
+	private static void drain(FileChannel fc, ByteBuffer buffer)
+			throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			fc.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Driver function: "convert <text graph> <snapshot>" converts an edge list
+	 * to a snapshot, "load <snapshot>" reports the time to open a snapshot
+	 *
+	 * @param args
+	 *            arguments - command and files
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 3 && args[0].equals("convert")) {
+			long start = System.currentTimeMillis();
+			CSRGraph g = EdgeListReader.readCSRGraph(new File(args[1]));
+			long parsed = System.currentTimeMillis();
+			write(g, new File(args[2]));
+			long end = System.currentTimeMillis();
+			System.out.println("Parsed " + g.numEdges + " arcs in "
+					+ (parsed - start) + " ms, wrote snapshot in "
+					+ (end - parsed) + " ms");
+		} else if (args.length == 2 && args[0].equals("load")) {
+			long start = System.nanoTime();
+			CSRGraph g = map(new File(args[1]));
+			long mapped = System.nanoTime();
+			load(new File(args[1]));
+			long end = System.nanoTime();
+			System.out.println("Mapped " + g.numNodes + " vertices, "
+					+ g.numEdges + " arcs in " + (mapped - start) / 1000
+					+ " us, loaded onto the heap in " + (end - mapped) / 1000
+					+ " us");
+		} else {
+			System.out.println("Usage: java graph.GraphSnapshot convert <text graph> <snapshot>");
+			System.out.println("       java graph.GraphSnapshot load <snapshot>");
+		}
+	}
+}
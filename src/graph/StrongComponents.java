@@ -0,0 +1,334 @@
+package graph;
+
+/**
+ * Strongly connected components of a graph, or of its zero weight edges
+ * only, found by Tarjan's algorithm with an explicit stack. Components are
+ * numbered in topological order of the condensation: every edge between two
+ * components goes from a lower to a higher number. The vertices of component
+ * c are vertices()[begin(c)] .. vertices()[end(c) - 1]. The height of a
+ * component, the number of edges on the longest path from it to a sink of
+ * the condensation, is found in the same pass: two components of equal
+ * height have no path between them. Components of the part
+ * reachable from a source leave the other vertices in no component (-1)
+ * without scanning them.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+public class StrongComponents {
+	public final int count; // number of components
+
+	private final int[] component; // component of each vertex, -1 for none
+	private final int[] start; // offset of each component in members
+	private final int[] members; // vertex names grouped by component
+	private final boolean[] cyclic; // component holds a cycle
+	private final int[] height; // longest condensation path to a sink
+
+	/**
+	 * Constructor for StrongComponents, runs Tarjan's algorithm
+	 *
+	 * @param n
+	 *            : int - number of vertices
+	 * @param arcs
+	 *            : Arcs - adjacency of the vertices
+	 * @param zeroWeightOnly
+	 *            : boolean - true to follow zero weight edges only
+	 * @param root
+	 *            : int - vertex to search from, 0 to search from every vertex
+	 */
+	private StrongComponents(int n, Arcs arcs, boolean zeroWeightOnly,
+			int root) {
+		component = new int[n + 1];
+		boolean[] loop = new boolean[n + 1]; // cycle of each component found
+		boolean[] selfLoop = new boolean[n + 1];
+		int[] rank = new int[n + 1]; // height of each component found
+		// longest path to a sink from the finished components seen below a
+		// vertex
+		int[] reach = new int[n + 1];
+		int[] index = new int[n + 1]; // discovery number, 0 if not visited
+		int[] low = new int[n + 1]; // lowest index reachable on the stack
+		int[] next = new int[n + 1]; // next adjacency position of a vertex
+		boolean[] onStack = new boolean[n + 1];
+		int[] stack = new int[n]; // vertices of unfinished components
+		int[] call = new int[n]; // explicit recursion stack
+		int top = 0;
+		int depth = 0;
+		int visited = 0;
+		int found = 0;
+
+		int first = root == 0 ? 1 : root;
+		int last = root == 0 ? n : root;
+		for (int r = first; r <= last; r++) {
+			if (index[r] != 0) {
+				continue;
+			}
+			index[r] = low[r] = ++visited;
+			stack[top++] = r;
+			onStack[r] = true;
+			call[depth++] = r;
+
+			while (depth > 0) {
+				int u = call[depth - 1];
+				if (next[u] < arcs.degree(u)) {
+					int i = next[u]++;
+					if (zeroWeightOnly && arcs.weight(u, i) != 0) {
+						continue;
+					}
+					int v = arcs.head(u, i);
+					if (v == u) {
+						selfLoop[u] = true;
+					}
+					if (index[v] == 0) {
+						index[v] = low[v] = ++visited;
+						stack[top++] = v;
+						onStack[v] = true;
+						call[depth++] = v;
+					} else if (onStack[v]) {
+						low[u] = Math.min(low[u], index[v]);
+					} else {
+						// an edge into a finished component
+						reach[u] = Math.max(reach[u], rank[component[v]] + 1);
+					}
+					continue;
+				}
+
+				// every arc of u is done
+				depth--;
+				if (low[u] == index[u]) {
+					int size = 0;
+					int height = 0;
+					int v;
+					do {
+						v = stack[--top];
+						onStack[v] = false;
+						component[v] = found;
+						height = Math.max(height, reach[v]);
+						size++;
+					} while (v != u);
+					loop[found] = size > 1 || selfLoop[u];
+					rank[found] = height;
+					found++;
+				}
+				if (depth > 0) {
+					int p = call[depth - 1];
+					low[p] = Math.min(low[p], low[u]);
+					// u is in the component of p unless it is finished
+					reach[p] = Math.max(reach[p], onStack[u] ? reach[u]
+							: rank[component[u]] + 1);
+				}
+			}
+		}
+
+		// Tarjan finishes the sinks first, so reverse the numbers
+		count = found;
+		int[] size = new int[count + 1];
+		for (int v = 1; v <= n; v++) {
+			if (index[v] == 0) {
+				component[v] = -1; // not reached from the root
+				continue;
+			}
+			component[v] = count - 1 - component[v];
+			size[component[v] + 1]++;
+		}
+		start = size;
+		for (int c = 0; c < count; c++) {
+			start[c + 1] += start[c];
+		}
+		members = new int[visited];
+		int[] fill = new int[count];
+		for (int v = 1; v <= n; v++) {
+			int c = component[v];
+			if (c < 0) {
+				continue;
+			}
+			members[start[c] + fill[c]++] = v;
+		}
+		cyclic = new boolean[count];
+		height = new int[count];
+		for (int c = 0; c < count; c++) {
+			cyclic[count - 1 - c] = loop[c];
+			height[count - 1 - c] = rank[c];
+		}
+	}
+
+	/**
+	 * components of an object graph
+	 *
+	 * @param g
+	 *            : Graph - input graph, an undirected edge is a cycle of
+	 *            length two
+	 * @param zeroWeightOnly
+	 *            : boolean - true to follow zero weight edges only
+	 * @return : StrongComponents - components of the graph
+	 */
+	public static StrongComponents of(Graph g, boolean zeroWeightOnly) {
+		return of(g, zeroWeightOnly, null);
+	}
+
+	/**
+	 * components of the subgraph of an object graph induced by some vertices
+	 * closed under reachability, the vertices outside are left as trivial
+	 * components without being scanned
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 * @param zeroWeightOnly
+	 *            : boolean - true to follow zero weight edges only
+	 * @param within
+	 *            : boolean[] - vertices of the subgraph, null for all
+	 * @return : StrongComponents - components of the subgraph
+	 */
+	static StrongComponents of(Graph g, boolean zeroWeightOnly,
+			boolean[] within) {
+		return new StrongComponents(g.numNodes, arcs(g, within),
+				zeroWeightOnly, 0);
+	}
+
+	/**
+	 * components of the part of an object graph reachable from a source.
+	 * Component 0 holds the source, the vertices not reached are in no
+	 * component.
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 * @param s
+	 *            : Vertex - source vertex
+	 * @return : StrongComponents - components of the reachable part
+	 */
+	public static StrongComponents reachable(Graph g, Vertex s) {
+		return new StrongComponents(g.numNodes, arcs(g, null), false, s.name);
+	}
+
+	/**
+	 * adjacency of an object graph, the vertices outside within have none
+	 *
+	 * @param g
+	 *            : Graph - input graph
+	 * @param within
+	 *            : boolean[] - vertices whose edges are kept, null for all
+	 * @return : Arcs - adjacency of the graph
+	 */
+	private static Arcs arcs(final Graph g, final boolean[] within) {
+		return new Arcs() {
+			@Override
+			int degree(int u) {
+				return within == null || within[u] ? g.verts.get(u).Adj.size()
+						: 0;
+			}
+
+			@Override
+			int head(int u, int i) {
+				Vertex v = g.verts.get(u);
+				return v.Adj.get(i).otherEnd(v).name;
+			}
+
+			@Override
+			int weight(int u, int i) {
+				return g.verts.get(u).Adj.get(i).Weight;
+			}
+		};
+	}
+
+	/**
+	 * components of a CSR graph
+	 *
+	 * @param g
+	 *            : CSRGraph - input graph
+	 * @param zeroWeightOnly
+	 *            : boolean - true to follow zero weight arcs only
+	 * @return : StrongComponents - components of the graph
+	 */
+	public static StrongComponents of(final CSRGraph g, boolean zeroWeightOnly) {
+		return new StrongComponents(g.numNodes, new Arcs() {
+			@Override
+			int degree(int u) {
+				return g.outDegree(u);
+			}
+
+			@Override
+			int head(int u, int i) {
+				return g.arcHead(g.outBegin(u) + i);
+			}
+
+			@Override
+			int weight(int u, int i) {
+				return g.arcWeight(g.outBegin(u) + i);
+			}
+		}, zeroWeightOnly, 0);
+	}
+
+	/** component of vertex v, -1 if it was not reached */
+	public int component(int v) {
+		return component[v];
+	}
+
+	/** offset of the first vertex of component c in vertices() */
+	public int begin(int c) {
+		return start[c];
+	}
+
+	/** offset past the last vertex of component c in vertices() */
+	public int end(int c) {
+		return start[c + 1];
+	}
+
+	/** number of vertices in component c */
+	public int size(int c) {
+		return start[c + 1] - start[c];
+	}
+
+	/**
+	 * vertex names grouped by component, shared with every caller and not to
+	 * be modified
+	 *
+	 * @return : int[] - vertices of component 0, then of component 1, ...
+	 */
+	public int[] vertices() {
+		return members;
+	}
+
+	/**
+	 * check if component c holds a cycle: more than one vertex, or a self loop
+	 *
+	 * @param c
+	 *            : int - component
+	 * @return : boolean - true if a cycle runs through the component
+	 */
+	public boolean isCyclic(int c) {
+		return cyclic[c];
+	}
+
+	/**
+	 * number of edges on the longest path of the condensation from component
+	 * c to a sink, an edge from c to d means height(c) > height(d)
+	 *
+	 * @param c
+	 *            : int - component
+	 * @return : int - height of the component, 0 for a sink
+	 */
+	public int height(int c) {
+		return height[c];
+	}
+
+	/** check if any component holds a cycle */
+	public boolean hasCycle() {
+		for (int c = 0; c < count; c++) {
+			if (cyclic[c]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * adjacency of the vertices, position i of vertex u for 0 <= i < degree(u)
+	 */
+	private static abstract class Arcs {
+		abstract int degree(int u);
+
+		abstract int head(int u, int i);
+
+		abstract int weight(int u, int i);
+	}
+}
@@ -0,0 +1,145 @@
+package pq;
+
+/**
+ * Dial's monotone bucket queue. With arc weights in [0, C], all keys in the
+ * queue lie in [d, d + C] where d is the last key removed, so C + 1 circular
+ * buckets are enough. Each bucket is a doubly linked list threaded through
+ * int arrays indexed by id, which makes decreaseKey O(1). Keys must never be
+ * smaller than the last key removed.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.util.Arrays;
+
+public class DialQueue implements IntPQ {
+
+	private static final int NONE = -1;
+
+	int[] head; // first id of each bucket, NONE if the bucket is empty
+	int[] next; // next id in the same bucket
+	int[] prev; // previous id in the same bucket, NONE for the first one
+	int[] bucket; // bucket of each id, NONE if not in the queue
+	long[] key; // key of each id
+	long current; // key of the bucket being scanned, lower bound of all keys
+	int size; // actual number of ids in the queue
+
+	/**
+	 * Create an empty queue for ids 0..n and arc weights up to maxWeight
+	 *
+	 * @param n
+	 *            largest id that can be stored
+	 * @param maxWeight
+	 *            largest arc weight, keys span at most maxWeight + 1 buckets
+	 */
+	public DialQueue(int n, int maxWeight) {
+		head = new int[maxWeight + 1];
+		next = new int[n + 1];
+		prev = new int[n + 1];
+		bucket = new int[n + 1];
+		key = new long[n + 1];
+		Arrays.fill(head, NONE);
+		Arrays.fill(bucket, NONE);
+		current = 0;
+		size = 0;
+	}
+
+	@Override
+	public void insert(int id, long k) {
+		if (size == 0 || k < current) {
+			current = k; // the scan restarts at the smallest key inserted
+		}
+		key[id] = k;
+		link(id, (int) (k % head.length));
+		size++;
+	}
+
+	@Override
+	public void decreaseKey(int id, long k) {
+		if (k < current) {
+			current = k;
+		}
+		unlink(id);
+		key[id] = k;
+		link(id, (int) (k % head.length));
+	}
+
+	@Override
+	public int deleteMin() {
+		if (size == 0) {
+			return NONE; // queue is already empty
+		}
+		int b = (int) (current % head.length);
+		while (head[b] == NONE) {
+			current++;
+			b = b + 1 == head.length ? 0 : b + 1;
+		}
+		int min = head[b];
+		unlink(min);
+		size--;
+		return min;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return bucket[id] != NONE;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int b = 0; b < head.length; b++) {
+			while (head[b] != NONE) {
+				unlink(head[b]);
+			}
+		}
+		size = 0;
+	}
+
+	/** Return the key last assigned to an id */
+	public long getKey(int id) {
+		return key[id];
+	}
+
+	/**
+	 * add an id at the front of a bucket
+	 *
+	 * @param id
+	 *            id not in any bucket
+	 * @param b
+	 *            bucket to add the id to
+	 */
+	private void link(int id, int b) {
+		bucket[id] = b;
+		prev[id] = NONE;
+		next[id] = head[b];
+		if (head[b] != NONE) {
+			prev[head[b]] = id;
+		}
+		head[b] = id;
+	}
+
+	/**
+	 * remove an id from its bucket
+	 *
+	 * @param id
+	 *            id in a bucket
+	 */
+	private void unlink(int id) {
+		int b = bucket[id];
+		if (prev[id] != NONE) {
+			next[prev[id]] = next[id];
+		} else {
+			head[b] = next[id];
+		}
+		if (next[id] != NONE) {
+			prev[next[id]] = prev[id];
+		}
+		bucket[id] = NONE;
+	}
+}
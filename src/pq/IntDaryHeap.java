@@ -0,0 +1,145 @@
+package pq;
+
+/**
+ * Indexed d-ary min heap of int ids with long keys. A larger arity makes the
+ * heap shallower, which speeds up insert and decreaseKey at the price of more
+ * comparisons per level in deleteMin. Ids must be in [0, capacity].
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.util.Arrays;
+
+public class IntDaryHeap implements IntPQ {
+
+	int d; // arity of the heap
+	int[] heap; // ids in heap order, children of i are d * i + 1 .. d * i + d
+	int[] pos; // position of each id in heap[], -1 if not in the heap
+	long[] key; // key of each id
+	int size; // actual number of ids in the heap
+
+	/**
+	 * Create an empty heap for ids 0..n
+	 *
+	 * @param n
+	 *            largest id that can be stored
+	 * @param arity
+	 *            number of children per node, at least 2
+	 */
+	public IntDaryHeap(int n, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Heap arity must be at least 2");
+		}
+		d = arity;
+		heap = new int[n + 1];
+		pos = new int[n + 1];
+		key = new long[n + 1];
+		Arrays.fill(pos, -1);
+		size = 0;
+	}
+
+	@Override
+	public void insert(int id, long k) {
+		key[id] = k;
+		heap[size] = id;
+		pos[id] = size;
+		percolateUp(size++);
+	}
+
+	@Override
+	public void decreaseKey(int id, long k) {
+		key[id] = k;
+		percolateUp(pos[id]);
+	}
+
+	@Override
+	public int deleteMin() {
+		if (size == 0) {
+			return -1; // heap is already empty
+		}
+		int min = heap[0];
+		pos[min] = -1;
+		int last = heap[--size];
+		if (size > 0) {
+			heap[0] = last;
+			pos[last] = 0;
+			percolateDown(0);
+		}
+		return min;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return pos[id] >= 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			pos[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * move heap[i] up until its parent is not larger
+	 *
+	 * @param i
+	 *            position in heap[] that violates heap order with parent
+	 */
+	private void percolateUp(int i) {
+		int id = heap[i];
+		long k = key[id];
+		while (i > 0) {
+			int p = (i - 1) / d;
+			int parent = heap[p];
+			if (key[parent] <= k) {
+				break;
+			}
+			heap[i] = parent; // percolate the hole up to its parent
+			pos[parent] = i;
+			i = p;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+	/**
+	 * move heap[i] down until no child is smaller
+	 *
+	 * @param i
+	 *            position in heap[] that violates heap order with children
+	 */
+	private void percolateDown(int i) {
+		int id = heap[i];
+		long k = key[id];
+		int first;
+		while ((first = d * i + 1) < size) { // still have children
+			int end = Math.min(first + d, size);
+			int child = first;
+			long childKey = key[heap[first]];
+			for (int c = first + 1; c < end; c++) {
+				long ck = key[heap[c]];
+				if (ck < childKey) {
+					child = c;
+					childKey = ck;
+				}
+			}
+			if (childKey < k) {
+				heap[i] = heap[child]; // percolate down
+				pos[heap[i]] = i;
+				i = child;
+			} else {
+				break;
+			}
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+}
@@ -0,0 +1,235 @@
+package pq;
+
+/**
+ * Indexed binary min heap of int ids with long keys. Keys and heap positions
+ * live in primitive arrays indexed by id, so no comparator is called and no
+ * object is allocated per element. Ids must be in [0, capacity].
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.util.Comparator;
+import java.util.Random;
+
+public class IntIndexedHeap implements IntPQ {
+
+	int[] heap; // ids in heap order, heap[0] is not used
+	int[] pos; // position of each id in heap[], 0 if not in the heap
+	long[] key; // key of each id
+	int size; // actual number of ids in the heap
+
+	/**
+	 * Create an empty heap for ids 0..n
+	 *
+	 * @param n
+	 *            largest id that can be stored
+	 */
+	public IntIndexedHeap(int n) {
+		heap = new int[n + 2];
+		pos = new int[n + 1];
+		key = new long[n + 1];
+		size = 0;
+	}
+
+	/**
+	 * Insert an id with a given key
+	 *
+	 * @param id
+	 *            id to be inserted, must not be in the heap
+	 * @param k
+	 *            key of the id
+	 */
+	public void insert(int id, long k) {
+		key[id] = k;
+		heap[++size] = id;
+		pos[id] = size;
+		percolateUp(size);
+	}
+
+	/**
+	 * Lower the key of an id already in the heap
+	 *
+	 * @param id
+	 *            id in the heap
+	 * @param k
+	 *            new key, not larger than the current one
+	 */
+	public void decreaseKey(int id, long k) {
+		key[id] = k;
+		percolateUp(pos[id]);
+	}
+
+	/**
+	 * Remove the id with the minimum key and return it
+	 *
+	 * @return id with the minimum key, -1 if the heap is empty
+	 */
+	public int deleteMin() {
+		if (size == 0) {
+			return -1; // heap is already empty
+		}
+		int min = heap[1];
+		pos[min] = 0;
+		int last = heap[size--];
+		if (size > 0) {
+			heap[1] = last;
+			pos[last] = 1;
+			percolateDown(1);
+		}
+		return min;
+	}
+
+	/** Return the id with the minimum key without deleting it, -1 if empty */
+	public int min() {
+		return size == 0 ? -1 : heap[1];
+	}
+
+	/** Return the key last assigned to an id */
+	public long getKey(int id) {
+		return key[id];
+	}
+
+	/** Return true if the id is currently in the heap */
+	public boolean contains(int id) {
+		return pos[id] != 0;
+	}
+
+	/** Return true is heap is empty */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Return the number of ids in the heap */
+	public int size() {
+		return size;
+	}
+
+	/** Remove all ids, in time proportional to the current size */
+	public void clear() {
+		for (int i = 1; i <= size; i++) {
+			pos[heap[i]] = 0;
+		}
+		size = 0;
+	}
+
+	/**
+	 * heap[i] may violate heap order with parent, move the hole up until the
+	 * element fits
+	 *
+	 * @param i
+	 *            position in heap[] that violates heap order with parent
+	 */
+	private void percolateUp(int i) {
+		int id = heap[i];
+		long k = key[id];
+		while (i > 1 && key[heap[i >>> 1]] > k) {
+			int parent = heap[i >>> 1];
+			heap[i] = parent; // percolate the hole up to its parent
+			pos[parent] = i;
+			i >>>= 1;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+	/**
+	 * heap[i] may violate heap order with children, move the hole down until
+	 * the element fits
+	 *
+	 * @param i
+	 *            position in heap[] that violates heap order with children
+	 */
+	private void percolateDown(int i) {
+		int id = heap[i];
+		long k = key[id];
+		int child;
+		while ((child = i << 1) <= size) { // still have children
+			if (child < size && key[heap[child + 1]] < key[heap[child]]) {
+				child++; // move to right child
+			}
+			int c = heap[child];
+			if (key[c] < k) {
+				heap[i] = c; // percolate down
+				pos[c] = i;
+				i = child;
+			} else {
+				break;
+			}
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+	/**
+	 * Driver function comparing IntIndexedHeap with IndexedHeap on the same
+	 * sequence of insert, decreaseKey and deleteMin operations
+	 *
+	 * @param args
+	 *            argument - number of elements (default 1000000)
+	 */
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		Random random = new Random(1);
+		final long[] keys = new long[n];
+		long[] decreased = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextInt(Integer.MAX_VALUE);
+			decreased[i] = random.nextInt((int) keys[i] + 1);
+		}
+
+		// generic path: Comparator dispatch and Index callbacks
+		class Item implements Index {
+			int id;
+			int index;
+
+			public void putIndex(int index) {
+				this.index = index;
+			}
+
+			public int getIndex() {
+				return index;
+			}
+		}
+		final long[] current = new long[n];
+		Comparator<Item> comp = new Comparator<Item>() {
+			@Override
+			public int compare(Item o1, Item o2) {
+				return Long.compare(current[o1.id], current[o2.id]);
+			}
+		};
+
+		long start = System.currentTimeMillis();
+		IndexedHeap<Item> generic = new IndexedHeap<Item>(n, comp);
+		Item[] items = new Item[n];
+		for (int i = 0; i < n; i++) {
+			items[i] = new Item();
+			items[i].id = i;
+			current[i] = keys[i];
+			generic.insert(items[i]);
+		}
+		for (int i = 0; i < n; i++) {
+			current[i] = decreased[i];
+			generic.decreaseKey(items[i]);
+		}
+		while (!generic.isEmpty()) {
+			generic.deleteMin();
+		}
+		long end = System.currentTimeMillis();
+		System.out.println("IndexedHeap: " + (end - start) + " ms");
+
+		start = System.currentTimeMillis();
+		IntIndexedHeap primitive = new IntIndexedHeap(n);
+		for (int i = 0; i < n; i++) {
+			primitive.insert(i, keys[i]);
+		}
+		for (int i = 0; i < n; i++) {
+			primitive.decreaseKey(i, decreased[i]);
+		}
+		while (!primitive.isEmpty()) {
+			primitive.deleteMin();
+		}
+		end = System.currentTimeMillis();
+		System.out.println("IntIndexedHeap: " + (end - start) + " ms");
+	}
+}
@@ -0,0 +1,24 @@
+package pq;
+
+/**
+ * Priority queue of int ids with long keys, the primitive counterpart of PQ
+ * used by the shortest path algorithms. Ids are bounded by the capacity given
+ * to the implementing class.
+ * 
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+public interface IntPQ {
+	public void insert(int id, long key); // id must not be in the queue
+
+	public void decreaseKey(int id, long key); // id must be in the queue
+
+	public int deleteMin(); // return -1 if queue is empty
+
+	public boolean contains(int id); // return true if id is in the queue
+
+	public boolean isEmpty(); // return true if queue is empty, false otherwise
+
+	public void clear(); // remove all ids
+}
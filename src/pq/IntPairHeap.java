@@ -0,0 +1,127 @@
+package pq;
+
+/**
+ * Binary min heap of (key, id) pairs stored in parallel primitive arrays. The
+ * same id may be inserted several times, which supports lazy deletion: stale
+ * entries are skipped by the caller when they reach the top. The arrays grow
+ * on demand, so memory follows the number of entries actually inserted.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+public class IntPairHeap {
+
+	private static final double RESIZE_FACTOR = 2;
+
+	int[] id; // ids in heap order, id[0] is not used
+	long[] key; // key of each entry, parallel to id[]
+	int size; // actual number of entries in the heap
+
+	/**
+	 * Create an empty heap of given capacity, the capacity can be extended
+	 * later during insert() operation
+	 *
+	 * @param n
+	 *            capacity of the heap without resizing
+	 */
+	public IntPairHeap(int n) {
+		id = new int[n + 1];
+		key = new long[n + 1];
+		size = 0;
+	}
+
+	/**
+	 * Insert an entry
+	 *
+	 * @param x
+	 *            id of the entry
+	 * @param k
+	 *            key of the entry
+	 */
+	public void insert(int x, long k) {
+		if (size == id.length - 1) {
+			resize(); // in case heap is full
+		}
+		int i = ++size;
+		while (i > 1 && key[i >>> 1] > k) {
+			id[i] = id[i >>> 1]; // percolate the hole up to its parent
+			key[i] = key[i >>> 1];
+			i >>>= 1;
+		}
+		id[i] = x;
+		key[i] = k;
+	}
+
+	/**
+	 * Remove the entry with the minimum key and return its id
+	 *
+	 * @return id of the minimum entry, -1 if the heap is empty
+	 */
+	public int deleteMin() {
+		if (size == 0) {
+			return -1; // heap is already empty
+		}
+		int min = id[1];
+		int lastId = id[size];
+		long lastKey = key[size];
+		size--;
+
+		int i = 1;
+		int child;
+		while ((child = i << 1) <= size) { // still have children
+			if (child < size && key[child + 1] < key[child]) {
+				child++; // move to right child
+			}
+			if (key[child] < lastKey) {
+				id[i] = id[child]; // percolate down
+				key[i] = key[child];
+				i = child;
+			} else {
+				break;
+			}
+		}
+		id[i] = lastId;
+		key[i] = lastKey;
+		return min;
+	}
+
+	/** Return the id of the minimum entry without deleting it */
+	public int min() {
+		return size == 0 ? -1 : id[1];
+	}
+
+	/** Return the key of the minimum entry, call before deleteMin() */
+	public long minKey() {
+		return key[1];
+	}
+
+	/** Return true is heap is empty */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Return the number of entries in the heap */
+	public int size() {
+		return size;
+	}
+
+	/** Remove all entries */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * resize internal arrays when they are full
+	 */
+	private void resize() {
+		// add 1 to original length to avoid zero multiplication
+		int length = (int) ((id.length + 1) * RESIZE_FACTOR);
+		int[] newId = new int[length];
+		long[] newKey = new long[length];
+		System.arraycopy(id, 0, newId, 0, id.length);
+		System.arraycopy(key, 0, newKey, 0, key.length);
+		id = newId;
+		key = newKey;
+	}
+}
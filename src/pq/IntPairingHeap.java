@@ -0,0 +1,160 @@
+package pq;
+
+/**
+ * Pairing heap of int ids with long keys. Nodes are ids and the tree is kept
+ * in int arrays (leftmost child, right sibling, left sibling or parent), so no
+ * node object is allocated. insert and decreaseKey only link trees, O(1);
+ * deleteMin merges the children of the root in two passes, O(log n)
+ * amortized. Ids must be in [0, capacity].
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.util.Arrays;
+
+public class IntPairingHeap implements IntPQ {
+
+	private static final int NONE = -1;
+
+	int[] child; // leftmost child of each node
+	int[] sibling; // right sibling of each node
+	int[] prev; // left sibling, or parent for a leftmost child
+	boolean[] inHeap; // indicator if id is in the heap
+	long[] key; // key of each id
+	int[] pairs; // scratch list of subtrees used by deleteMin
+	int root; // root of the heap, NONE if empty
+
+	/**
+	 * Create an empty heap for ids 0..n
+	 *
+	 * @param n
+	 *            largest id that can be stored
+	 */
+	public IntPairingHeap(int n) {
+		child = new int[n + 1];
+		sibling = new int[n + 1];
+		prev = new int[n + 1];
+		inHeap = new boolean[n + 1];
+		key = new long[n + 1];
+		pairs = new int[n + 1];
+		root = NONE;
+	}
+
+	@Override
+	public void insert(int id, long k) {
+		key[id] = k;
+		child[id] = NONE;
+		sibling[id] = NONE;
+		prev[id] = NONE;
+		inHeap[id] = true;
+		root = root == NONE ? id : link(root, id);
+	}
+
+	@Override
+	public void decreaseKey(int id, long k) {
+		key[id] = k;
+		if (id == root) {
+			return;
+		}
+		// cut the subtree of id and link it with the root
+		if (child[prev[id]] == id) {
+			child[prev[id]] = sibling[id];
+		} else {
+			sibling[prev[id]] = sibling[id];
+		}
+		if (sibling[id] != NONE) {
+			prev[sibling[id]] = prev[id];
+		}
+		sibling[id] = NONE;
+		prev[id] = NONE;
+		root = link(root, id);
+	}
+
+	@Override
+	public int deleteMin() {
+		if (root == NONE) {
+			return NONE; // heap is already empty
+		}
+		int min = root;
+		inHeap[min] = false;
+
+		// first pass: link children in pairs from left to right
+		int count = 0;
+		int c = child[min];
+		while (c != NONE) {
+			int a = c;
+			int b = sibling[a];
+			if (b == NONE) {
+				c = NONE;
+				detach(a);
+				pairs[count++] = a;
+			} else {
+				c = sibling[b];
+				detach(a);
+				detach(b);
+				pairs[count++] = link(a, b);
+			}
+		}
+
+		// second pass: link the pairs from right to left
+		root = NONE;
+		for (int i = count - 1; i >= 0; i--) {
+			root = root == NONE ? pairs[i] : link(pairs[i], root);
+		}
+		child[min] = NONE;
+		return min;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return inHeap[id];
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return root == NONE;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(inHeap, false);
+		root = NONE;
+	}
+
+	/**
+	 * link two roots, the one with the larger key becomes the leftmost child
+	 * of the other
+	 *
+	 * @param a
+	 *            root of a tree
+	 * @param b
+	 *            root of another tree
+	 * @return root of the linked tree
+	 */
+	private int link(int a, int b) {
+		if (key[b] < key[a]) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		sibling[b] = child[a];
+		if (child[a] != NONE) {
+			prev[child[a]] = b;
+		}
+		prev[b] = a;
+		child[a] = b;
+		return a;
+	}
+
+	/**
+	 * clear the sibling links of a node that becomes a root
+	 *
+	 * @param a
+	 *            node removed from a sibling list
+	 */
+	private void detach(int a) {
+		sibling[a] = NONE;
+		prev[a] = NONE;
+	}
+}
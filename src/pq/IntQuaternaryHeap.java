@@ -0,0 +1,166 @@
+package pq;
+
+/**
+ * Indexed 4-ary min heap laid out for cache lines. Each entry packs the key
+ * into the high 32 bits and the id into the low 32 bits of one long, so a
+ * single signed comparison orders entries and the four children of a node
+ * fill 32 contiguous bytes. The root sits at index 3, which puts every
+ * sibling group at an index divisible by 4, so with the usual 16 byte array
+ * header a group usually spans half of a 64 byte line rather than two lines.
+ * This is not guaranteed: HotSpot only aligns objects to 8 bytes. Keys must
+ * fit in an int.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+public class IntQuaternaryHeap implements IntPQ {
+
+	private static final int ROOT = 3;
+	private static final long ID_MASK = 0xFFFFFFFFL;
+
+	long[] heap; // packed (key, id) entries, root at index 3
+	int[] pos; // position of each id in heap[], 0 if not in the heap
+	int last; // index of the last entry, ROOT - 1 if empty
+
+	/**
+	 * Create an empty heap for ids 0..n
+	 *
+	 * @param n
+	 *            largest id that can be stored
+	 */
+	public IntQuaternaryHeap(int n) {
+		heap = new long[n + 1 + ROOT];
+		pos = new int[n + 1];
+		last = ROOT - 1;
+	}
+
+	@Override
+	public void insert(int id, long k) {
+		heap[++last] = pack(id, k);
+		pos[id] = last;
+		percolateUp(last);
+	}
+
+	@Override
+	public void decreaseKey(int id, long k) {
+		int i = pos[id];
+		heap[i] = pack(id, k);
+		percolateUp(i);
+	}
+
+	@Override
+	public int deleteMin() {
+		if (last < ROOT) {
+			return -1; // heap is already empty
+		}
+		int min = (int) (heap[ROOT] & ID_MASK);
+		pos[min] = 0;
+		long entry = heap[last--];
+		if (last >= ROOT) {
+			heap[ROOT] = entry;
+			percolateDown(ROOT);
+		}
+		return min;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return pos[id] != 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return last < ROOT;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = ROOT; i <= last; i++) {
+			pos[(int) (heap[i] & ID_MASK)] = 0;
+		}
+		last = ROOT - 1;
+	}
+
+	/**
+	 * pack a key and an id into one comparable long
+	 *
+	 * @param id
+	 *            id of the entry
+	 * @param k
+	 *            key of the entry, within int range
+	 * @return key in the high half, id in the low half
+	 */
+	private static long pack(int id, long k) {
+		if (k != (int) k) {
+			throw new IllegalArgumentException("Key out of int range: " + k);
+		}
+		return (k << 32) | (id & ID_MASK);
+	}
+
+	/**
+	 * move heap[i] up until its parent is not larger
+	 *
+	 * @param i
+	 *            position in heap[] that violates heap order with parent
+	 */
+	private void percolateUp(int i) {
+		long entry = heap[i];
+		while (i > ROOT) {
+			int p = (i >> 2) + 2; // parent of i
+			if (heap[p] <= entry) {
+				break;
+			}
+			heap[i] = heap[p]; // percolate the hole up to its parent
+			pos[(int) (heap[i] & ID_MASK)] = i;
+			i = p;
+		}
+		heap[i] = entry;
+		pos[(int) (entry & ID_MASK)] = i;
+	}
+
+	/**
+	 * move heap[i] down until no child is smaller
+	 *
+	 * @param i
+	 *            position in heap[] that violates heap order with children
+	 */
+	private void percolateDown(int i) {
+		long entry = heap[i];
+		int first;
+		while ((first = (i << 2) - 8) <= last) { // still have children
+			int end = Math.min(first + 3, last);
+			int child = first;
+			for (int c = first + 1; c <= end; c++) {
+				if (heap[c] < heap[child]) {
+					child = c;
+				}
+			}
+			if (heap[child] < entry) {
+				heap[i] = heap[child]; // percolate down
+				pos[(int) (heap[i] & ID_MASK)] = i;
+				i = child;
+			} else {
+				break;
+			}
+		}
+		heap[i] = entry;
+		pos[(int) (entry & ID_MASK)] = i;
+	}
+
+	/**
+	 * Return the key last assigned to an id in the heap
+	 *
+	 * @param id
+	 *            id in the heap
+	 * @return key of the id
+	 */
+	public long getKey(int id) {
+		return heap[pos[id]] >> 32;
+	}
+
+	/** Return the number of ids in the heap */
+	public int size() {
+		return last - ROOT + 1;
+	}
+}
@@ -0,0 +1,166 @@
+package pq;
+
+/**
+ * Monotone radix heap for non-negative keys. Bucket 0 holds ids whose key
+ * equals the last key removed, bucket i > 0 holds ids whose key differs from
+ * it first in bit i - 1. Removing the minimum only redistributes the first
+ * non-empty bucket into lower buckets, so each id moves down at most 64 times.
+ * Buckets are doubly linked lists threaded through int arrays indexed by id.
+ * Keys must never be smaller than the last key removed.
+ *
+ * @author Peng Li
+ * @author Nan Zhang
+ */
+
+import java.util.Arrays;
+
+public class RadixHeap implements IntPQ {
+
+	private static final int NONE = -1;
+	private static final int BUCKETS = 65;
+
+	int[] head; // first id of each bucket, NONE if the bucket is empty
+	int[] next; // next id in the same bucket
+	int[] prev; // previous id in the same bucket, NONE for the first one
+	int[] bucket; // bucket of each id, NONE if not in the heap
+	long[] key; // key of each id
+	long last; // last key removed
+	int size; // actual number of ids in the heap
+
+	/**
+	 * Create an empty heap for ids 0..n
+	 *
+	 * @param n
+	 *            largest id that can be stored
+	 */
+	public RadixHeap(int n) {
+		head = new int[BUCKETS];
+		next = new int[n + 1];
+		prev = new int[n + 1];
+		bucket = new int[n + 1];
+		key = new long[n + 1];
+		Arrays.fill(head, NONE);
+		Arrays.fill(bucket, NONE);
+		last = 0;
+		size = 0;
+	}
+
+	@Override
+	public void insert(int id, long k) {
+		key[id] = k;
+		link(id, bucketOf(k));
+		size++;
+	}
+
+	@Override
+	public void decreaseKey(int id, long k) {
+		unlink(id);
+		key[id] = k;
+		link(id, bucketOf(k));
+	}
+
+	@Override
+	public int deleteMin() {
+		if (size == 0) {
+			return NONE; // heap is already empty
+		}
+		if (head[0] == NONE) {
+			int b = 1;
+			while (head[b] == NONE) {
+				b++;
+			}
+			// the minimum of bucket b becomes the new reference key, every
+			// other id of bucket b then falls into a lower bucket
+			long min = Long.MAX_VALUE;
+			for (int id = head[b]; id != NONE; id = next[id]) {
+				min = Math.min(min, key[id]);
+			}
+			last = min;
+			int id = head[b];
+			while (id != NONE) {
+				int following = next[id];
+				unlink(id);
+				link(id, bucketOf(key[id]));
+				id = following;
+			}
+		}
+		int min = head[0];
+		unlink(min);
+		size--;
+		return min;
+	}
+
+	@Override
+	public boolean contains(int id) {
+		return bucket[id] != NONE;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int b = 0; b < BUCKETS; b++) {
+			while (head[b] != NONE) {
+				unlink(head[b]);
+			}
+		}
+		last = 0;
+		size = 0;
+	}
+
+	/** Return the key last assigned to an id */
+	public long getKey(int id) {
+		return key[id];
+	}
+
+	/**
+	 * bucket of a key relative to the last key removed
+	 *
+	 * @param k
+	 *            key not smaller than last
+	 * @return index of the highest bit where k and last differ, plus one
+	 */
+	private int bucketOf(long k) {
+		return k == last ? 0 : 64 - Long.numberOfLeadingZeros(k ^ last);
+	}
+
+	/**
+	 * add an id at the front of a bucket
+	 *
+	 * @param id
+	 *            id not in any bucket
+	 * @param b
+	 *            bucket to add the id to
+	 */
+	private void link(int id, int b) {
+		bucket[id] = b;
+		prev[id] = NONE;
+		next[id] = head[b];
+		if (head[b] != NONE) {
+			prev[head[b]] = id;
+		}
+		head[b] = id;
+	}
+
+	/**
+	 * remove an id from its bucket
+	 *
+	 * @param id
+	 *            id in a bucket
+	 */
+	private void unlink(int id) {
+		int b = bucket[id];
+		if (prev[id] != NONE) {
+			next[prev[id]] = next[id];
+		} else {
+			head[b] = next[id];
+		}
+		if (next[id] != NONE) {
+			prev[next[id]] = prev[id];
+		}
+		bucket[id] = NONE;
+	}
+}